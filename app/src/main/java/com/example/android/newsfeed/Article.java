@@ -1,11 +1,30 @@
 package com.example.android.newsfeed;
 
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * {@link Article} represents information for a single news article.
- * Each object has 4 properties: title, section, publish date and URL.
+ * Each object has 5 properties: title, section, author, publish time and URL, and
+ * optionally a thumbnail and trail text when the query asked for them (see
+ * {@link ArticleProjection}).
+ * <p>
+ * Articles are identified by their URL: two articles are equal if they have the same URL.
+ * Sections and authors repeat across a feed, so they are shared through an intern pool,
+ * and the URL, only needed once an article is opened, is kept as UTF-8 bytes.
  */
 class Article {
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Most distinct sections and authors pooled before the pool is started over */
+    private static final int MAX_POOLED_STRINGS = 1024;
+
+    // Sections and authors seen so far, so articles share a single copy of each
+    private static final Map<String, String> sStringPool = new HashMap<>();
+
     //region Fields and Properties
 
     // Title of the article
@@ -26,18 +45,42 @@ class Article {
         return mAuthor;
     }
 
-    // Publish date of the article
-    private final String mPublishDate;
-    public String getPublishDate() {
-        return mPublishDate;
+    // Publish time of the article in milliseconds since the epoch, parsed once when the
+    // article is created, or PublishDateFormatter.UNKNOWN
+    private final long mPublishTime;
+    public long getPublishTime() {
+        return mPublishTime;
     }
 
-    // Url to article content
-    private final String mUrl;
+    // Url to article content, UTF-8 encoded, or null
+    private final byte[] mUrl;
+
+    /**
+     * Returns the url to the article content, decoded each time it is asked for.
+     */
     public String getUrl() {
+        return mUrl != null ? new String(mUrl, UTF_8) : null;
+    }
+
+    byte[] getUrlBytes() {
         return mUrl;
     }
 
+    // Url of a thumbnail image of the article, or null
+    private final String mThumbnailUrl;
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+
+    // Standfirst of the article as HTML, or null
+    private final String mTrailText;
+    public String getTrailText() {
+        return mTrailText;
+    }
+
+    // Hash code of the url, computed on first use
+    private int mHashCode;
+
     //endregion
 
     /**
@@ -46,15 +89,75 @@ class Article {
      * @param title is the title of the article
      * @param section is the section categorization of the article
      * @param author is the author date of the article
-     * @param publishDate is the date of the article
+     * @param publishTime is the publish time of the article in milliseconds since the epoch
      * @param url is the URL for the article's Guardian web page
      */
-    public Article(String title, String section, String author, String publishDate, String url)
+    public Article(String title, String section, String author, long publishTime, String url)
+    {
+        this(title, section, author, publishTime, encodeUrl(url), null, null);
+    }
+
+    /**
+     * Constructs a new {@link Article} object from an already encoded URL.
+     *
+     * @param url is the UTF-8 encoded URL for the article's Guardian web page, which the
+     *            article takes ownership of
+     * @param thumbnailUrl is the URL of a thumbnail image of the article, or null
+     * @param trailText is the standfirst of the article as HTML, or null
+     */
+    Article(String title, String section, String author, long publishTime, byte[] url,
+            String thumbnailUrl, String trailText)
     {
         mTitle = title;
-        mSectionName = section;
-        mAuthor = author;
-        mPublishDate = publishDate;
+        mSectionName = intern(section);
+        mAuthor = intern(author);
+        mPublishTime = publishTime;
         mUrl = url;
+        mThumbnailUrl = thumbnailUrl;
+        mTrailText = trailText;
+    }
+
+    /**
+     * Returns the UTF-8 encoding of the given URL, or null if there is none.
+     */
+    static byte[] encodeUrl(String url) {
+        return url != null ? url.getBytes(UTF_8) : null;
+    }
+
+    /**
+     * Returns the pooled copy of the given string, adding it to the pool if it is new.
+     */
+    private static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        synchronized (sStringPool) {
+            String pooled = sStringPool.get(value);
+            if (pooled == null) {
+                if (sStringPool.size() >= MAX_POOLED_STRINGS) {
+                    // Articles keep their copies, only later ones stop sharing with them
+                    sStringPool.clear();
+                }
+                sStringPool.put(value, value);
+                pooled = value;
+            }
+            return pooled;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o
+                || (o instanceof Article && Arrays.equals(mUrl, ((Article) o).mUrl));
+    }
+
+    @Override
+    public int hashCode() {
+        int hashCode = mHashCode;
+        if (hashCode == 0) {
+            hashCode = Arrays.hashCode(mUrl);
+            mHashCode = hashCode;
+        }
+        return hashCode;
     }
  }
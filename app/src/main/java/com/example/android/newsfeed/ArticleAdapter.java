@@ -1,108 +1,218 @@
 package com.example.android.newsfeed;
 
-import android.app.Activity;
+import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+import android.support.v7.recyclerview.extensions.ListAdapter;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.Locale;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.TimeZone;
 
-class ArticleAdapter extends ArrayAdapter<Article> {
+/**
+ * {@link ArticleAdapter} presents a list of {@link Article}s in a {@link RecyclerView}.
+ * A new list is compared with the current one on a background thread, keyed by article
+ * URL, so only rows that were inserted, moved, removed or changed are rebound.
+ */
+class ArticleAdapter extends ListAdapter<Article, ArticleAdapter.ViewHolder> {
 
-    private static final String INPUT_PUBLISHED_DATE_FORMAT_STRING = "yyyy-MM-dd'T'HH:mm:ss'Z'";
-    private static final String INPUT_PUBLISHED_DATE_TIME_ZONE = "GMT";
-    private static final String OUTPUT_PUBLISHED_DATE_FORMAT_STRING = "LLL dd, yyyy";
+    /**
+     * Interface definition for a callback to be invoked when an article row is clicked.
+     */
+    interface OnArticleClickListener {
+        void onArticleClick(Article article);
+    }
+
+    /**
+     * The views of a row, by the field of the article each one shows.  Rows bind and
+     * compare these fields and no others, and they are the ones requested for every article.
+     */
+    private static final Map<ArticleProjection.Field, Integer> ROW_VIEW_IDS = rowViewIds();
+
+    /** The fields a row shows, to go through them without allocating */
+    private static final ArticleProjection.Field[] ROW_FIELDS =
+            ROW_VIEW_IDS.keySet().toArray(new ArticleProjection.Field[ROW_VIEW_IDS.size()]);
+
+    /** Fields the rows show, and so the ones requested for every article */
+    static final ArticleProjection PROJECTION = new ArticleProjection(ROW_VIEW_IDS.keySet());
+
+    /** Payload of a change that only affects the publish time shown */
+    private static final Object PAYLOAD_PUBLISH_TIME = new Object();
+
+    /** Identifies articles by URL and compares everything a row shows */
+    @VisibleForTesting
+    static final DiffUtil.ItemCallback<Article> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Article>() {
+                @Override
+                public boolean areItemsTheSame(Article oldArticle, Article newArticle) {
+                    // Articles are equal when their URLs are
+                    return oldArticle.equals(newArticle);
+                }
+
+                @Override
+                public boolean areContentsTheSame(Article oldArticle, Article newArticle) {
+                    for (ArticleProjection.Field field : ROW_FIELDS) {
+                        boolean same = field == ArticleProjection.Field.PUBLISH_TIME
+                                ? oldArticle.getPublishTime() == newArticle.getPublishTime()
+                                : Objects.equals(getText(oldArticle, field),
+                                        getText(newArticle, field));
+                        if (!same) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            };
+
+    /** Formats publish times, caching the strings so binding a row doesn't allocate */
+    private final PublishDateFormatter mDateFormatter;
+
+    /** Loads the thumbnails off the main thread */
+    private final ImageLoader mImageLoader;
+
+    private final OnArticleClickListener mOnArticleClickListener;
 
     /**
-     * This is our own custom constructor (it doesn't mirror a superclass constructor).
-     * The context is used to inflate the layout file, and the list is the data we want
-     * to populate into the lists.
+     * Constructs a new {@link ArticleAdapter} with an empty list.
      *
-     * @param context The current context. Used to inflate the layout file.
-     * @param articles A List of {@link Article} objects to display in a list
+     * @param context The current context. Used to load the strings publish times are
+     *                formatted with, and to reach the thumbnail caches.
+     * @param listener is notified when an article row is clicked
      */
-    public ArticleAdapter(Activity context, ArrayList<Article> articles) {
-        super(context, 0, articles);
+    ArticleAdapter(Context context, OnArticleClickListener listener) {
+        super(DIFF_CALLBACK);
+        mDateFormatter = new PublishDateFormatter(context);
+        mImageLoader = ImageLoader.getInstance(context);
+        mOnArticleClickListener = listener;
+    }
+
+    private static Map<ArticleProjection.Field, Integer> rowViewIds() {
+        Map<ArticleProjection.Field, Integer> ids = new EnumMap<>(ArticleProjection.Field.class);
+        ids.put(ArticleProjection.Field.TITLE, R.id.article_title);
+        ids.put(ArticleProjection.Field.AUTHOR, R.id.article_author);
+        ids.put(ArticleProjection.Field.SECTION, R.id.article_section);
+        ids.put(ArticleProjection.Field.PUBLISH_TIME, R.id.publication_date);
+        ids.put(ArticleProjection.Field.THUMBNAIL, R.id.article_thumbnail);
+        return ids;
     }
 
     /**
-     * Provides a view for an AdapterView (ListView, GridView, etc.)
+     * Returns the given text field of the given article.
+     */
+    private static String getText(Article article, ArticleProjection.Field field) {
+        switch (field) {
+            case TITLE:
+                return article.getTitle();
+            case SECTION:
+                return article.getSectionName();
+            case AUTHOR:
+                return article.getAuthor();
+            case URL:
+                return article.getUrl();
+            case THUMBNAIL:
+                return article.getThumbnailUrl();
+            case TRAIL_TEXT:
+                return article.getTrailText();
+            default:
+                throw new IllegalArgumentException(field + " isn't a text field");
+        }
+    }
+
+    /**
+     * Inflates a new article row.
      *
-     * @param position The position in the list of data that should be displayed in the
-     *                 list item view.
-     * @param convertView The recycled view to populate.
      * @param parent The parent ViewGroup that is used for inflation.
-     * @return The View for the position in the AdapterView.
+     * @param viewType The view type of the new View.
+     * @return A new ViewHolder holding the row's views.
      */
     @NonNull
     @Override
-    public View getView(int position, View convertView, @NonNull ViewGroup parent) {
-
-        // Check if the existing view is being reused, otherwise inflate the view
-        ViewHolder viewHolder;
-        if(convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.article_list_item, parent, false);
-
-            // Find and persist the views in the article_list_item.xml
-            viewHolder = new ViewHolder();
-            viewHolder.titleView = convertView.findViewById(R.id.article_title);
-            viewHolder.authorView = convertView.findViewById(R.id.article_author);
-            viewHolder.sectionNameView = convertView.findViewById(R.id.article_section);
-            viewHolder.publishDateView = convertView.findViewById(R.id.publication_date);
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View itemView = LayoutInflater.from(parent.getContext()).inflate(
+                R.layout.article_list_item, parent, false);
+        return new ViewHolder(itemView);
+    }
 
-            convertView.setTag(viewHolder);
-        }
-        else {
-            viewHolder = (ViewHolder) convertView.getTag();
-        }
+    /**
+     * Populates the given row with the {@link Article} at the given position.
+     *
+     * @param viewHolder The ViewHolder of the row to populate.
+     * @param position The position of the article in the list.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder viewHolder, int position) {
+        long start = LoadMetrics.begin(LoadMetrics.Stage.BIND);
 
         // Get the {@link Article} object located at this position in the list
         Article currentArticle = getItem(position);
 
-        // Set the title TextView value
-        viewHolder.titleView.setText(Objects.requireNonNull(currentArticle).getTitle());
+        for (ArticleProjection.Field field : ROW_FIELDS) {
+            View view = viewHolder.mFieldViews.get(field);
+            switch (field) {
+                case PUBLISH_TIME:
+                    bindPublishTime(viewHolder, currentArticle);
+                    break;
+                case THUMBNAIL:
+                    // Show the thumbnail once it is decoded, if the article has one
+                    mImageLoader.load(currentArticle.getThumbnailUrl(), (ImageView) view);
+                    break;
+                default:
+                    ((TextView) view).setText(getText(currentArticle, field));
+                    break;
+            }
+        }
 
-        // Set the section name TextView value
-        viewHolder.authorView.setText(currentArticle.getAuthor());
+        LoadMetrics.end(LoadMetrics.Stage.BIND, start, 0, 1);
+    }
 
-        // Set the section name TextView value
-        viewHolder.sectionNameView.setText(currentArticle.getSectionName());
+    /**
+     * Populates the given row, only updating the publish time when that is all that changed.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder viewHolder, int position,
+                                 @NonNull List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_PUBLISH_TIME) {
+                super.onBindViewHolder(viewHolder, position, payloads);
+                return;
+            }
+        }
+        if (payloads.isEmpty()) {
+            onBindViewHolder(viewHolder, position);
+        } else {
+            bindPublishTime(viewHolder, getItem(position));
+        }
+    }
 
-        // Set the publish date TextView value
-        viewHolder.publishDateView.setText(formatPublicationDate(currentArticle.getPublishDate()));
+    /**
+     * Stops loading the thumbnail of a row scrolled out of view, and lets go of its bitmap.
+     */
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder viewHolder) {
+        mImageLoader.clear(
+                (ImageView) viewHolder.mFieldViews.get(ArticleProjection.Field.THUMBNAIL));
+    }
 
-        // Return the whole list item layout so that it can be shown in the ListView
-        return convertView;
+    private void bindPublishTime(ViewHolder viewHolder, Article article) {
+        TextView publishDateView =
+                (TextView) viewHolder.mFieldViews.get(ArticleProjection.Field.PUBLISH_TIME);
+        publishDateView.setText(mDateFormatter.format(
+                article.getPublishTime(), System.currentTimeMillis()));
     }
 
     /**
-     * Reformats the given publication date string to one used in presentation
-     *
-     * @param strDate Input string to be reformatted
-     * @return the given date string in desired presentation format or empty
-     * string if unable to parse
+     * Rebinds the publish time of the rows shown, so relative times stay current.
      */
-    private String formatPublicationDate(String strDate) {
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat(INPUT_PUBLISHED_DATE_FORMAT_STRING, Locale.US);
-        simpleDateFormat.setTimeZone(TimeZone.getTimeZone(INPUT_PUBLISHED_DATE_TIME_ZONE));
-        try {
-            Date dateObject = simpleDateFormat.parse(strDate);
-            simpleDateFormat = new SimpleDateFormat(OUTPUT_PUBLISHED_DATE_FORMAT_STRING, Locale.US);
-            return simpleDateFormat.format(dateObject);
-        } catch (ParseException e) {
-            // Cant parse, just return empty string
-            return "";
-        }
+    void refreshPublishTimes() {
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_PUBLISH_TIME);
     }
 
     /**
@@ -110,11 +220,27 @@ class ArticleAdapter extends ArrayAdapter<Article> {
      *  It is used to persist the list_item resource identifiers so that they are only
      *  found {@link View#findViewById} once.
      */
-    static class ViewHolder {
-        private TextView titleView;
-        private TextView sectionNameView;
-        private TextView authorView;
-        private TextView publishDateView;
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        private final Map<ArticleProjection.Field, View> mFieldViews =
+                new EnumMap<>(ArticleProjection.Field.class);
+
+        ViewHolder(View itemView) {
+            super(itemView);
+
+            // Find and persist the views in the article_list_item.xml
+            for (Map.Entry<ArticleProjection.Field, Integer> entry : ROW_VIEW_IDS.entrySet()) {
+                mFieldViews.put(entry.getKey(), itemView.findViewById(entry.getValue()));
+            }
+
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                mOnArticleClickListener.onArticleClick(getItem(position));
+            }
+        }
     }
 }
-
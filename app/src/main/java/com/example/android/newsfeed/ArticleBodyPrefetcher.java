@@ -0,0 +1,107 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link ArticleBodyPrefetcher} fetches the text of the top articles of a feed into the
+ * {@link ArticleBodyStore} ahead of time, so reader mode can open them straight away and
+ * without a network connection.
+ */
+final class ArticleBodyPrefetcher {
+
+    private static final String LOG_TAG = ArticleBodyPrefetcher.class.getName();
+
+    /** Number of articles from the top of a feed whose text is fetched */
+    static final int PREFETCH_COUNT = 10;
+
+    /** Fetches one article at a time, so prefetching never competes much with the feed */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    // URLs of the articles being fetched or waiting to be, guarded by itself
+    private static final Set<String> sPending = new HashSet<>();
+
+    private ArticleBodyPrefetcher() {
+    }
+
+    /**
+     * Fetches the text of the top articles of the given list in the background, skipping
+     * the ones already stored or being fetched.
+     */
+    static void prefetch(Context context, final ArticleQuery query, List<Article> articles) {
+        final ArticleBodyStore store = ArticleBodyStore.getInstance(context);
+        int count = Math.min(PREFETCH_COUNT, articles.size());
+        for (final Article article : articles.subList(0, count)) {
+            final String url = article.getUrl();
+            synchronized (sPending) {
+                if (!sPending.add(url)) {
+                    continue;
+                }
+            }
+            EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        fetch(store, query, article, null);
+                    } finally {
+                        synchronized (sPending) {
+                            sPending.remove(url);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Fetches the text of the top articles of the given list on the calling thread,
+     * skipping the ones already stored.
+     *
+     * @param cancellationSignal stops the fetch when canceled, which throws
+     *                           {@link android.os.OperationCanceledException}
+     * @return true if the text of every article is stored
+     */
+    static boolean prefetchNow(Context context, ArticleQuery query, List<Article> articles,
+                               CancellationSignal cancellationSignal) {
+        ArticleBodyStore store = ArticleBodyStore.getInstance(context);
+        int count = Math.min(PREFETCH_COUNT, articles.size());
+        boolean fetched = true;
+        for (Article article : articles.subList(0, count)) {
+            fetched &= fetch(store, query, article, cancellationSignal);
+        }
+        return fetched;
+    }
+
+    /**
+     * Fetches and stores the text of the given article, unless it is already stored.
+     *
+     * @return true if the text is stored
+     */
+    private static boolean fetch(ArticleBodyStore store, ArticleQuery query, Article article,
+                                 CancellationSignal cancellationSignal) {
+        String url = article.getUrl();
+        if (url == null || store.contains(url)) {
+            return true;
+        }
+
+        String requestUrl = query.getBodyRequestUrl(article);
+        if (requestUrl == null) {
+            return true;
+        }
+
+        String body = QueryUtils.fetchArticleBody(requestUrl, cancellationSignal);
+        if (body == null || body.isEmpty()) {
+            Log.w(LOG_TAG, "No text fetched for " + url);
+            return false;
+        }
+        store.put(url, body);
+        return true;
+    }
+}
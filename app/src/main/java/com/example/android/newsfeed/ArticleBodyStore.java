@@ -0,0 +1,234 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link ArticleBodyStore} keeps the text of articles fetched ahead of time for reader mode,
+ * gzip compressed, keyed by article URL.  Unlike the {@link ArticleCache} it lives with the
+ * app's files, so the system doesn't clear it to reclaim space while the device is offline.
+ * Once it grows beyond {@link #MAX_SIZE_BYTES} the least recently used bodies are evicted.
+ */
+final class ArticleBodyStore {
+
+    private static final String LOG_TAG = ArticleBodyStore.class.getName();
+
+    private static final String STORE_DIRECTORY_NAME = "bodies";
+    private static final int FORMAT_VERSION = 1;
+
+    /** Suffix of the file a body is written to before it replaces the previous one */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** Longest body read back, far more than any article */
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    /** Upper bound on the total size of the stored bodies */
+    static final long MAX_SIZE_BYTES = 2 * 1024 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static ArticleBodyStore sInstance;
+
+    private final File mDirectory;
+
+    // Number of articles opened that had a body stored, and that didn't
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+
+    /**
+     * Returns the process-wide {@link ArticleBodyStore}.
+     */
+    static synchronized ArticleBodyStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleBodyStore(new File(
+                    context.getApplicationContext().getFilesDir(), STORE_DIRECTORY_NAME));
+        }
+        return sInstance;
+    }
+
+    private ArticleBodyStore(File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * Returns true if a body is stored for the given article URL.
+     */
+    boolean contains(String articleUrl) {
+        return fileFor(articleUrl).exists();
+    }
+
+    /**
+     * Returns true if a body is stored for the given article URL, counting the lookup as
+     * an article being opened towards the hit rate.
+     */
+    boolean containsForOpen(String articleUrl) {
+        boolean contains = contains(articleUrl);
+        (contains ? mHitCount : mMissCount).incrementAndGet();
+        return contains;
+    }
+
+    /**
+     * Returns the body stored for the given article URL, or null if there is none.
+     */
+    synchronized String get(String articleUrl) {
+        File file = fileFor(articleUrl);
+        if (!file.exists()) {
+            return null;
+        }
+
+        String body = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(file))))) {
+            if (in.readInt() == FORMAT_VERSION) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_BODY_BYTES) {
+                    throw new IOException("Invalid body length " + length);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                body = new String(bytes, UTF_8);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading stored article", e);
+        }
+
+        if (body == null) {
+            // Unreadable, don't let it take up space any longer
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+
+        // Record the access so eviction removes the least recently used bodies first
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+        return body;
+    }
+
+    /**
+     * Stores the given body for the given article URL, replacing any previous one.
+     */
+    synchronized void put(String articleUrl, String body) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create the article store directory");
+            return;
+        }
+
+        File file = fileFor(articleUrl);
+        File tempFile = new File(mDirectory, file.getName() + TEMP_FILE_SUFFIX);
+        try {
+            byte[] bytes = body.getBytes(UTF_8);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Unable to replace " + file);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing stored article", e);
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return;
+        }
+
+        trimToSize();
+    }
+
+    /**
+     * Evicts the least recently used bodies until the store fits in {@link #MAX_SIZE_BYTES}.
+     */
+    private void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= MAX_SIZE_BYTES) {
+            return;
+        }
+
+        List<File> byLastUse = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(byLastUse, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (File file : byLastUse) {
+            if (size <= MAX_SIZE_BYTES) {
+                break;
+            }
+            size -= file.length();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    /**
+     * Writes the hit rate of the articles opened and how much is stored.
+     */
+    synchronized void dump(PrintWriter writer) {
+        File[] files = mDirectory.listFiles();
+        long size = 0;
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+
+        long hits = mHitCount.get();
+        long opened = hits + mMissCount.get();
+        writer.println(String.format(Locale.US,
+                "  reader mode: %d of %d opened offline, %d articles in %d KB stored",
+                hits, opened, files != null ? files.length : 0, size / 1024));
+    }
+
+    /**
+     * Returns the file the body for the given article URL is stored in.  The URL is hashed
+     * so that it is safe to use as a file name.
+     */
+    private File fileFor(String articleUrl) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(articleUrl.getBytes(UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(mDirectory, name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android platform is required to provide SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
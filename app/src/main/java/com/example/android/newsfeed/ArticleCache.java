@@ -0,0 +1,514 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ArticleCache} is a disk-backed store of the {@link Article}s returned for a query,
+ * along with the HTTP validators needed to revalidate them, keyed by the normalized request
+ * URL (see {@link QueryUtils#normalizeRequestUrl}).
+ * Entries older than {@link #MAX_AGE_MILLIS} are dropped, and once the store grows beyond
+ * {@link #MAX_SIZE_BYTES} the least recently used entries are evicted.
+ * <p>
+ * The entries used most recently are also held parsed in an {@link ArticleMemoryCache},
+ * which is consulted before the disk.
+ */
+final class ArticleCache {
+
+    private static final String LOG_TAG = ArticleCache.class.getName();
+
+    private static final String CACHE_DIRECTORY_NAME = "articles";
+    private static final int FORMAT_VERSION = 7;
+
+    /** Longest byte array read back, as long as the longest string of the format */
+    private static final int MAX_BYTES_LENGTH = 0xffff;
+
+    /** Suffix of the file an entry is written to before it replaces the previous one */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /** How long a cached entry is served without revalidating it against the network */
+    static final long FRESH_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /** How long a cached entry is kept at all */
+    static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /** Upper bound on the total size of the cached entries */
+    static final long MAX_SIZE_BYTES = 1024 * 1024;
+
+    private static ArticleCache sInstance;
+
+    private final File mDirectory;
+
+    // Whether the entries on disk have been added to the search index
+    private boolean mIndexed;
+
+    /**
+     * Returns the process-wide {@link ArticleCache}.
+     */
+    static synchronized ArticleCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context applicationContext = context.getApplicationContext();
+            sInstance = new ArticleCache(new File(applicationContext.getCacheDir(),
+                    CACHE_DIRECTORY_NAME));
+            applicationContext.registerComponentCallbacks(ArticleMemoryCache.getInstance());
+        }
+        return sInstance;
+    }
+
+    private ArticleCache(File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * Returns the cached entry for the given request URL, or null if there is none or
+     * it has expired.
+     */
+    Entry get(String requestUrl) {
+        // Entries held in memory were indexed when they were read or stored
+        Entry entry = ArticleMemoryCache.getInstance().get(requestUrl);
+        if (entry != null) {
+            return entry;
+        }
+
+        synchronized (this) {
+            // Read while this call waited, such as by the read made at process start
+            entry = ArticleMemoryCache.getInstance().get(requestUrl);
+            if (entry != null) {
+                return entry;
+            }
+
+            File file = fileFor(requestUrl);
+            if (!file.exists()) {
+                return null;
+            }
+
+            entry = readFile(file);
+            if (entry == null) {
+                return null;
+            }
+
+            // Record the access so eviction removes the least recently used entries first
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+            ArticleMemoryCache.getInstance().put(requestUrl, entry);
+        }
+        ArticleSearchIndex.getInstance().addAll(entry.getArticles());
+        return entry;
+    }
+
+    /**
+     * Adds the articles of every cached entry to the {@link ArticleSearchIndex}, the first
+     * time it is called.  Entries stored or read afterwards are indexed as that happens.
+     */
+    void indexAll() {
+        File[] files;
+        synchronized (this) {
+            if (mIndexed) {
+                return;
+            }
+            mIndexed = true;
+            files = mDirectory.listFiles();
+        }
+        if (files == null) {
+            return;
+        }
+
+        // Read one file at a time, so loads reading the cache don't wait for all of them
+        for (File file : files) {
+            Entry entry;
+            synchronized (this) {
+                entry = file.exists() ? readFile(file) : null;
+            }
+            if (entry != null) {
+                ArticleSearchIndex.getInstance().addAll(entry.getArticles());
+            }
+        }
+    }
+
+    /**
+     * Reads the entry stored in the given file, deleting the file if it can't be read or
+     * has expired.
+     *
+     * @return the entry, or null if there is none
+     */
+    private Entry readFile(File file) {
+        Entry entry = null;
+        long start = LoadMetrics.begin(LoadMetrics.Stage.CACHE_READ);
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            entry = readEntry(in, file.length());
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading cached articles", e);
+        } finally {
+            LoadMetrics.end(LoadMetrics.Stage.CACHE_READ, start, file.length(),
+                    entry != null ? entry.getArticles().size() : 0);
+        }
+
+        if (entry == null || entry.getAge() > MAX_AGE_MILLIS) {
+            // Unreadable or expired, don't let it take up space any longer
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the given entry for the given request URL, replacing any previous entry.
+     * The entry is written to a temporary file first and then renamed over the previous
+     * one, so a process killed mid-write leaves the previous entry intact.
+     */
+    synchronized void put(String requestUrl, Entry entry) {
+        ArticleMemoryCache.getInstance().put(requestUrl, entry);
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create the article cache directory");
+            return;
+        }
+
+        File file = fileFor(requestUrl);
+        File tempFile = new File(mDirectory, file.getName() + TEMP_FILE_SUFFIX);
+        long start = LoadMetrics.begin(LoadMetrics.Stage.CACHE_WRITE);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                writeEntry(out, entry);
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Unable to replace " + file);
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing cached articles", e);
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return;
+        } finally {
+            LoadMetrics.end(LoadMetrics.Stage.CACHE_WRITE, start, file.length(),
+                    entry.getArticles().size());
+        }
+
+        ArticleSearchIndex.getInstance().addAll(entry.getArticles());
+        trimToSize();
+    }
+
+    /**
+     * Evicts the least recently used entries until the store fits in {@link #MAX_SIZE_BYTES}.
+     */
+    private void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= MAX_SIZE_BYTES) {
+            return;
+        }
+
+        List<File> byLastUse = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(byLastUse, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (File file : byLastUse) {
+            if (size <= MAX_SIZE_BYTES) {
+                break;
+            }
+            size -= file.length();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    /**
+     * Returns the file an entry for the given request URL is stored in.  The normalized
+     * URL is hashed so that it is safe to use as a file name.
+     */
+    private File fileFor(String requestUrl) {
+        String key = QueryUtils.normalizeRequestUrl(requestUrl);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(Charset.forName("UTF-8")));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(mDirectory, name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android platform is required to provide SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //region Serialization
+
+    /**
+     * Writes the given entry.  Sections and authors repeat across the articles of an entry,
+     * so each distinct one is written once, in a table, and articles refer to it by index.
+     */
+    @VisibleForTesting
+    static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(entry.getFetchedAt());
+        out.writeLong(entry.getFullFetchedAt());
+        writeNullableString(out, entry.getETag());
+        writeNullableString(out, entry.getLastModified());
+
+        Map<String, Integer> table = new LinkedHashMap<>();
+        for (Article article : entry.getArticles()) {
+            addToTable(table, article.getSectionName());
+            addToTable(table, article.getAuthor());
+        }
+        writeVarInt(out, table.size());
+        for (String value : table.keySet()) {
+            out.writeUTF(value);
+        }
+
+        writeVarInt(out, entry.getArticles().size());
+        for (Article article : entry.getArticles()) {
+            writeNullableString(out, article.getTitle());
+            writeTableIndex(out, table, article.getSectionName());
+            writeTableIndex(out, table, article.getAuthor());
+            out.writeLong(article.getPublishTime());
+            writeNullableBytes(out, article.getUrlBytes());
+            writeNullableString(out, article.getThumbnailUrl());
+            writeNullableString(out, article.getTrailText());
+        }
+    }
+
+    /**
+     * Reads an entry written by {@link #writeEntry}.  Whatever the bytes read, a corrupt
+     * entry fails with an IOException rather than any other exception.
+     *
+     * @param length is the number of bytes there are to read, which bounds the number of
+     *               strings and articles of the entry
+     * @return the entry, or null if it was written in another format
+     */
+    @VisibleForTesting
+    static Entry readEntry(DataInputStream in, long length) throws IOException {
+        if (in.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        long fetchedAt = in.readLong();
+        long fullFetchedAt = in.readLong();
+        String eTag = readNullableString(in);
+        String lastModified = readNullableString(in);
+
+        // Articles share the strings of the table rather than each holding a copy
+        String[] table = new String[readCount(in, length)];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = in.readUTF();
+        }
+
+        int count = readCount(in, length);
+        List<Article> articles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = readNullableString(in);
+            String sectionName = readTableValue(in, table);
+            String author = readTableValue(in, table);
+            long publishTime = in.readLong();
+            byte[] url = readNullableBytes(in);
+            String thumbnailUrl = readNullableString(in);
+            String trailText = readNullableString(in);
+            articles.add(new Article(title, sectionName, author, publishTime, url,
+                    thumbnailUrl, trailText));
+        }
+        return new Entry(articles, fetchedAt, fullFetchedAt, eTag, lastModified);
+    }
+
+    /**
+     * Writes the length of the given bytes plus one, or 0 for null, followed by the bytes.
+     */
+    private static void writeNullableBytes(DataOutputStream out, byte[] value)
+            throws IOException {
+        writeVarInt(out, value == null ? 0 : value.length + 1);
+        if (value != null) {
+            out.write(value);
+        }
+    }
+
+    private static byte[] readNullableBytes(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length - 1 > MAX_BYTES_LENGTH) {
+            throw new IOException("Bad length " + length);
+        }
+        byte[] value = new byte[length - 1];
+        in.readFully(value);
+        return value;
+    }
+
+    private static void addToTable(Map<String, Integer> table, String value) {
+        if (value != null && !table.containsKey(value)) {
+            table.put(value, table.size());
+        }
+    }
+
+    /**
+     * Writes the index of the given value in the table plus one, or 0 for null.
+     */
+    private static void writeTableIndex(DataOutputStream out, Map<String, Integer> table,
+                                        String value) throws IOException {
+        writeVarInt(out, value == null ? 0 : table.get(value) + 1);
+    }
+
+    private static String readTableValue(DataInputStream in, String[] table) throws IOException {
+        int index = readVarInt(in);
+        if (index < 0 || index > table.length) {
+            throw new IOException("Bad string table index " + index);
+        }
+        return index == 0 ? null : table[index - 1];
+    }
+
+    /**
+     * Reads the number of items that follow, each of which takes at least one byte.
+     *
+     * @param length is the number of bytes there are to read, so there can't be more items
+     */
+    private static int readCount(DataInputStream in, long length) throws IOException {
+        int count = readVarInt(in);
+        if (count < 0 || count > length) {
+            throw new IOException("Bad count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Writes a non-negative int in as few bytes as it needs, 7 bits per byte.
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    //endregion
+
+    /**
+     * A cached list of {@link Article}s along with the time they were fetched and the
+     * validators the server sent with them.
+     */
+    static final class Entry {
+
+        private final List<Article> mArticles;
+        List<Article> getArticles() {
+            return mArticles;
+        }
+
+        // Wall clock time the articles were fetched from the network
+        private final long mFetchedAt;
+        long getFetchedAt() {
+            return mFetchedAt;
+        }
+
+        // Wall clock time the whole list was last fetched, rather than only the articles
+        // published since the newest one held
+        private final long mFullFetchedAt;
+        long getFullFetchedAt() {
+            return mFullFetchedAt;
+        }
+
+        // Value of the ETag response header, if any
+        private final String mETag;
+        String getETag() {
+            return mETag;
+        }
+
+        // Value of the Last-Modified response header, if any
+        private final String mLastModified;
+        String getLastModified() {
+            return mLastModified;
+        }
+
+        /**
+         * Constructs an entry for a list fetched in full.
+         */
+        Entry(List<Article> articles, long fetchedAt, String eTag, String lastModified) {
+            this(articles, fetchedAt, fetchedAt, eTag, lastModified);
+        }
+
+        Entry(List<Article> articles, long fetchedAt, long fullFetchedAt, String eTag,
+              String lastModified) {
+            mArticles = articles;
+            mFetchedAt = fetchedAt;
+            mFullFetchedAt = fullFetchedAt;
+            mETag = eTag;
+            mLastModified = lastModified;
+        }
+
+        /**
+         * Returns a copy of this entry for when the server confirmed the articles are
+         * unchanged, keeping the current validators unless new ones were sent.  The server
+         * confirmed the whole list, so it counts as fetched in full.
+         */
+        Entry revalidated(long fetchedAt, String eTag, String lastModified) {
+            return new Entry(mArticles, fetchedAt, fetchedAt,
+                    eTag != null ? eTag : mETag,
+                    lastModified != null ? lastModified : mLastModified);
+        }
+
+        long getAge() {
+            return System.currentTimeMillis() - mFetchedAt;
+        }
+
+        /**
+         * Returns true if the articles should be revalidated against the network.
+         */
+        boolean isStale() {
+            return getAge() > FRESH_MILLIS;
+        }
+    }
+}
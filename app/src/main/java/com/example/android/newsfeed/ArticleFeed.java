@@ -0,0 +1,564 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ArticleFeed} loads the {@link Article}s for one or more request URLs on the
+ * {@link LoadPipeline}.  When there are several, they are fetched concurrently and merged
+ * by {@link ArticleMerger}.  Articles cached by {@link ArticleCache} are delivered straight
+ * away and, once stale, revalidated against the network in the background with a
+ * conditional request.  When there is nothing to show yet, articles are delivered in
+ * batches as they are parsed off the responses, before the load completes.
+ * <p>
+ * A feed is owned by the main thread, which it delivers the articles on.  It loads while
+ * started, is canceled when stopped, and can be kept across a configuration change,
+ * along with the articles it loaded, by detaching it instead.
+ */
+final class ArticleFeed {
+
+    private static final String LOG_TAG = ArticleFeed.class.getName();
+
+    /**
+     * Receives the articles of a feed on the main thread.
+     */
+    interface Listener {
+
+        /**
+         * Called with the articles loaded, or parsed so far, by the given feed.
+         *
+         * @param articles are the articles, or null if there are none to show
+         */
+        void onArticlesLoaded(ArticleFeed feed, List<Article> articles);
+    }
+
+    private final Context mContext;
+    private final List<String> mUrls;
+    private final ArticleMerger.Order mOrder;
+    // How urgently the articles are needed, raised once a page fetched ahead is shown
+    private volatile LoadPipeline.Priority mPriority;
+    private final ArticleCache mCache;
+    private final LoadPipeline mPipeline = LoadPipeline.getInstance();
+
+    // Delivers the results of the pipeline on the main thread
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Told about the articles while started, null while stopped or detached
+    private Listener mListener;
+
+    // Whether the feed has been started and not stopped since
+    private boolean mStarted;
+
+    // Load in progress, or null
+    private Load mLoad;
+
+    // Articles delivered last, kept so they can be redelivered without loading again
+    private volatile List<Article> mArticles;
+
+    // Cache entries of the articles last fetched for each URL, holding the validators
+    // to revalidate them
+    private final Map<String, ArticleCache.Entry> mEntries = new ConcurrentHashMap<>();
+
+    // Whether the cache has already been consulted by this feed
+    private volatile boolean mCacheChecked;
+
+    // Whether the articles being delivered came from a stale cache entry
+    private volatile boolean mRevalidate;
+
+    // Whether the articles should be loaded again once the feed is next started
+    private boolean mContentChanged;
+
+    // Why the last load fetched nothing from the network, or null if it fetched something
+    private volatile FetchResult.Status mLastError;
+
+    /**
+     * Constructs a new {@link ArticleFeed} for several request URLs.
+     *
+     * @param context is used to reach the cache and check the network connection
+     * @param urls are the request URLs, their results are merged
+     * @param order is the order of the merged results
+     * @param priority is how urgently the articles are needed
+     */
+    ArticleFeed(Context context, List<String> urls, ArticleMerger.Order order,
+                LoadPipeline.Priority priority) {
+        mContext = context.getApplicationContext();
+        mUrls = urls;
+        mOrder = order;
+        mPriority = priority;
+        mCache = ArticleCache.getInstance(context);
+    }
+
+    //region Lifecycle
+
+    /**
+     * Starts delivering the articles to the given listener.  The articles already loaded
+     * are delivered straight away, and loaded again if missing or stale.
+     */
+    void start(Listener listener) {
+        mListener = listener;
+        mStarted = true;
+
+        // Show what we already have, then only hit the network if it is missing or stale
+        if (mArticles != null) {
+            listener.onArticlesLoaded(this, mArticles);
+        }
+        if (mLoad == null && (mArticles == null || mContentChanged || isStale())) {
+            load();
+        }
+    }
+
+    /**
+     * Returns true while the feed is loading, so the articles it delivers are only the
+     * ones parsed so far, or the ones it held before the load.
+     */
+    boolean isLoading() {
+        return mLoad != null;
+    }
+
+    /**
+     * Starts loading the articles before the feed is started, so they are on their way
+     * while its activity is still being created.  Does nothing if already loading.
+     */
+    void preload() {
+        if (mLoad == null && mArticles == null) {
+            load();
+        }
+    }
+
+    /**
+     * Stops delivering the articles, canceling the load in progress, so a feed no longer
+     * shown frees its threads and connections at once.
+     */
+    void stop() {
+        mListener = null;
+        mStarted = false;
+        cancelLoad();
+    }
+
+    /**
+     * Stops delivering the articles while letting the load in progress complete, for a
+     * feed started again by the next instance of its activity.
+     */
+    void detach() {
+        mListener = null;
+    }
+
+    /**
+     * Stops the feed for good, dropping its articles.
+     */
+    void destroy() {
+        stop();
+        mArticles = null;
+    }
+
+    //endregion
+
+    /**
+     * Changes how urgently the articles are needed, such as once a page fetched ahead of
+     * being scrolled to is shown.  The work of the load in progress still waiting for a
+     * thread moves to the new priority.
+     */
+    void setPriority(LoadPipeline.Priority priority) {
+        mPriority = priority;
+        if (mLoad != null) {
+            mLoad.setPriority(priority);
+        }
+    }
+
+    /**
+     * Returns why the last load could not fetch any articles from the network, or null if
+     * it could or there has been no such load yet.
+     */
+    FetchResult.Status getLastError() {
+        return mLastError;
+    }
+
+    //region Loading
+
+    /**
+     * Starts loading the articles from the cache on the first load and from the network
+     * after that.
+     */
+    private void load() {
+        Log.i(LOG_TAG, "load");
+
+        mContentChanged = false;
+        final Load load = new Load();
+        mLoad = load;
+        if (mUrls.isEmpty()) {
+            complete(load, null);
+            return;
+        }
+
+        if (!mCacheChecked) {
+            load.executeIo(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        readCache(load);
+                    } catch (RuntimeException e) {
+                        fail(load, e);
+                    }
+                }
+            });
+        } else {
+            fetchAll(load);
+        }
+    }
+
+    private void cancelLoad() {
+        if (mLoad != null) {
+            mLoad.cancel();
+            mLoad = null;
+        }
+    }
+
+    /**
+     * Serves the cached articles, if any, so the list can be shown without waiting on the
+     * network, or fetches them otherwise.  Called on an I/O thread.
+     */
+    private void readCache(Load load) {
+        mCacheChecked = true;
+        for (String url : mUrls) {
+            ArticleCache.Entry cached = mCache.get(url);
+            if (cached != null) {
+                mEntries.put(url, cached);
+            }
+        }
+
+        // Make everything fetched before searchable, not only what this feed reads,
+        // without holding up the cached articles
+        mPipeline.executeIo(LoadPipeline.Priority.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mCache.indexAll();
+                } catch (RuntimeException e) {
+                    // Only searching is affected, the load goes on
+                    Log.e(LOG_TAG, "Problem indexing cached articles", e);
+                }
+            }
+        });
+
+        if (!mEntries.isEmpty()) {
+            mRevalidate = isStale() && isNetworkAvailable();
+            completeWithEntries(load);
+        } else {
+            fetchAll(load);
+        }
+    }
+
+    /**
+     * Fetches the articles of every URL at once, each on an I/O thread, so the load takes
+     * about as long as the slowest of them, keeping the articles already loaded if the
+     * network can't be reached.
+     */
+    private void fetchAll(final Load load) {
+        if (!isNetworkAvailable()) {
+            complete(load, mArticles);
+            return;
+        }
+
+        // With nothing shown yet, show articles as soon as they are parsed rather than once
+        // every response is complete
+        final boolean progressive = mArticles == null;
+        for (int i = 0; i < mUrls.size(); i++) {
+            final String url = mUrls.get(i);
+            final CancellationSignal cancellationSignal = load.mCancellationSignals.get(i);
+            load.executeIo(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (fetch(load, url, cancellationSignal, progressive)) {
+                            load.mFetched = true;
+                        }
+                    } catch (OperationCanceledException e) {
+                        // The load was canceled, nothing is delivered
+                    } catch (RuntimeException e) {
+                        // Counts as a failed fetch, so the load still completes
+                        Log.e(LOG_TAG, "Problem fetching articles", e);
+                        mLastError = FetchResult.Status.NETWORK_ERROR;
+                    } finally {
+                        if (load.mRemaining.decrementAndGet() == 0) {
+                            onFetched(load);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Fetches the articles for the given URL, revalidating the ones already held, and
+     * stores them in the cache.
+     *
+     * @param cancellationSignal aborts the fetch when the load is canceled
+     * @param progressive is whether to deliver the articles as they are parsed
+     * @return true if the articles were fetched
+     */
+    private boolean fetch(final Load load, final String url,
+                          CancellationSignal cancellationSignal, boolean progressive) {
+        ArticleParser.ProgressListener progressListener = null;
+        if (progressive) {
+            progressListener = new ArticleParser.ProgressListener() {
+                @Override
+                public void onArticlesParsed(List<Article> articles) {
+                    load.mPartialArticles.put(url, articles);
+                    deliverPartialResult(load, mergePartialArticles(load));
+                }
+            };
+        }
+
+        // Shared with any other load of the same URL in flight, and only fetching the
+        // articles published since the ones held when ordered by newest
+        FetchResult result = DeltaRefresh.fetch(
+                url, mEntries.get(url), cancellationSignal, progressListener);
+        if (!result.isSuccess()) {
+            mLastError = result.getStatus();
+            return false;
+        }
+
+        ArticleCache.Entry entry = result.getEntry();
+
+        mCache.put(url, entry);
+        mEntries.put(url, entry);
+        return true;
+    }
+
+    /**
+     * Completes the load once the fetch of every URL has finished.
+     */
+    private void onFetched(Load load) {
+        if (load.isCanceled()) {
+            return;
+        }
+        if (!load.mFetched) {
+            // Keep showing what we have rather than an empty list
+            complete(load, mArticles);
+            return;
+        }
+        mLastError = null;
+        completeWithEntries(load);
+    }
+
+    /**
+     * Merges the entries held for every URL on a CPU thread, then completes the load with
+     * the merged articles.
+     */
+    private void completeWithEntries(final Load load) {
+        mPipeline.submitCpu(new Callable<Void>() {
+            @Override
+            public Void call() {
+                List<Article> articles;
+                try {
+                    articles = mergeEntries();
+                } catch (RuntimeException e) {
+                    fail(load, e);
+                    return null;
+                }
+                complete(load, articles);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Completes the given load with the articles already held after it failed unexpectedly,
+     * rather than leave the feed loading for good, as the pipeline would only hold on to
+     * the exception.
+     */
+    private void fail(Load load, RuntimeException e) {
+        Log.e(LOG_TAG, "Problem loading articles", e);
+        mLastError = FetchResult.Status.NETWORK_ERROR;
+        complete(load, mArticles);
+    }
+
+    /**
+     * Delivers the result of the given load on the main thread, unless it has been
+     * canceled since, and kicks off a revalidation if the result came from a stale cache
+     * entry.
+     */
+    private void complete(final Load load, final List<Article> articles) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mLoad != load || load.isCanceled()) {
+                    return;
+                }
+                mLoad = null;
+                LoadMetrics.record(LoadMetrics.Stage.LOAD, load.mStartNanos,
+                        articles != null ? articles.size() : 0);
+
+                mArticles = articles;
+                if (mListener != null) {
+                    mListener.onArticlesLoaded(ArticleFeed.this, articles);
+                }
+
+                if (mRevalidate) {
+                    mRevalidate = false;
+                    if (mStarted) {
+                        load();
+                    } else {
+                        mContentChanged = true;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends the articles parsed so far to the listener, unless the load has been canceled
+     * since.  Unlike {@link #complete}, they are not kept as the articles of the feed, so
+     * the load still completes with every article.
+     */
+    private void deliverPartialResult(final Load load, final List<Article> articles) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mLoad == load && !load.isCanceled() && mListener != null) {
+                    mListener.onArticlesLoaded(ArticleFeed.this, articles);
+                }
+            }
+        });
+    }
+
+    //endregion
+
+    /**
+     * Returns the merged articles of the entries held for every URL.
+     */
+    private List<Article> mergeEntries() {
+        List<List<Article>> lists = new ArrayList<>(mUrls.size());
+        for (String url : mUrls) {
+            ArticleCache.Entry entry = mEntries.get(url);
+            lists.add(entry != null ? entry.getArticles() : null);
+        }
+        return ArticleMerger.merge(lists, mOrder);
+    }
+
+    /**
+     * Returns the merged articles parsed so far by the given load for every URL.
+     */
+    private List<Article> mergePartialArticles(Load load) {
+        List<List<Article>> lists = new ArrayList<>(mUrls.size());
+        for (String url : mUrls) {
+            lists.add(load.mPartialArticles.get(url));
+        }
+        return ArticleMerger.merge(lists, mOrder);
+    }
+
+    /**
+     * Returns true if the articles of any URL are missing or should be revalidated.
+     */
+    private boolean isStale() {
+        for (String url : mUrls) {
+            ArticleCache.Entry entry = mEntries.get(url);
+            if (entry == null || entry.isStale()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if there is a network connection to load articles over.
+     */
+    private boolean isNetworkAvailable() {
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivityManager == null) {
+            return false;
+        }
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    /**
+     * One load of the articles, holding what it needs to be canceled as a whole: the
+     * requests it made and the pipeline work it queued.
+     */
+    private final class Load {
+
+        private final long mStartNanos = System.nanoTime();
+
+        // Signals canceling the requests of the load, one per URL
+        private final List<CancellationSignal> mCancellationSignals =
+                new ArrayList<>(mUrls.size());
+
+        // Work of the load queued on the pipeline, guarded by itself
+        private final List<Future<?>> mFutures = new ArrayList<>();
+
+        // Articles parsed so far for each URL, while nothing is shown yet
+        private final Map<String, List<Article>> mPartialArticles = new ConcurrentHashMap<>();
+
+        // URLs whose fetch hasn't finished yet
+        private final AtomicInteger mRemaining = new AtomicInteger(mUrls.size());
+
+        // Whether the articles of any URL were fetched
+        private volatile boolean mFetched;
+
+        private volatile boolean mCanceled;
+
+        Load() {
+            for (int i = 0; i < mUrls.size(); i++) {
+                mCancellationSignals.add(new CancellationSignal());
+            }
+        }
+
+        /**
+         * Runs the given work of the load on an I/O thread, with the priority of the feed.
+         */
+        void executeIo(Runnable runnable) {
+            synchronized (mFutures) {
+                if (!mCanceled) {
+                    mFutures.add(mPipeline.executeIo(mPriority, runnable));
+                }
+            }
+        }
+
+        /**
+         * Moves the work of the load still waiting for a thread to the given priority.
+         */
+        void setPriority(LoadPipeline.Priority priority) {
+            synchronized (mFutures) {
+                for (Future<?> future : mFutures) {
+                    mPipeline.setIoPriority(future, priority);
+                }
+            }
+        }
+
+        boolean isCanceled() {
+            return mCanceled;
+        }
+
+        /**
+         * Skips the work of the load still queued, and aborts its requests, and the parsing
+         * of their responses, in progress.
+         */
+        void cancel() {
+            synchronized (mFutures) {
+                mCanceled = true;
+                for (Future<?> future : mFutures) {
+                    future.cancel(false);
+                }
+            }
+            for (CancellationSignal cancellationSignal : mCancellationSignals) {
+                cancellationSignal.cancel();
+            }
+        }
+    }
+}
@@ -1,66 +0,0 @@
-package com.example.android.newsfeed;
-
-import android.accounts.OperationCanceledException;
-import android.content.AsyncTaskLoader;
-import android.content.Context;
-import android.content.Loader;
-import android.util.Log;
-
-import java.util.List;
-
-class ArticleLoader extends AsyncTaskLoader {
-
-    private static final String LOG_TAG = ArticleLoader.class.getName();
-    private final String mUrl;
-
-    public ArticleLoader(Context context, String url) {
-        super(context);
-        mUrl = url;
-    }
-
-    /**
-     * Subclasses must implement this to take care of loading their data,
-     * as per {@link #startLoading()}.  This is not called by clients directly,
-     * but as a result of a call to {@link #startLoading()}.
-     */
-    @Override
-    protected void onStartLoading() {
-        Log.i(LOG_TAG, "onStartLoading");
-        forceLoad();
-    }
-
-    /**
-     * Called on a worker thread to perform the actual load and to return
-     * the result of the load operation.
-     * <p>
-     * Implementations should not deliver the result directly, but should return them
-     * from this method, which will eventually end up calling {@link #deliverResult} on
-     * the UI thread.  If implementations need to process the results on the UI thread
-     * they may override {@link #deliverResult} and do so there.
-     * <p>
-     * To support cancellation, this method should periodically check the value of
-     * {@link #isLoadInBackgroundCanceled} and terminate when it returns true.
-     * Subclasses may also override {@link #cancelLoadInBackground} to interrupt the load
-     * directly instead of polling {@link #isLoadInBackgroundCanceled}.
-     * <p>
-     * When the load is canceled, this method may either return normally or throw
-     * {@link OperationCanceledException}.  In either case, the {@link Loader} will
-     * call {@link #onCanceled} to perform post-cancellation cleanup and to dispose of the
-     * result object, if any.
-     *
-     * @return The result of the load operation.
-     * @see #isLoadInBackgroundCanceled
-     * @see #onCanceled
-     */
-    @Override
-    public List<Article> loadInBackground() {
-        Log.i(LOG_TAG, "loadInBackground");
-
-        if (mUrl == null) {
-            return null;
-        }
-
-        // Perform the network request, parse the response, and extract a list of article.
-        return QueryUtils.fetchNewsData(mUrl);
-    }
-}
@@ -0,0 +1,117 @@
+package com.example.android.newsfeed;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.util.Log;
+import android.util.LruCache;
+
+/**
+ * {@link ArticleMemoryCache} keeps the most recently used parsed entries of the
+ * {@link ArticleCache} in memory, keyed by the normalized request URL, so asking again for
+ * a query that was just loaded needs neither the network nor the disk.
+ * <p>
+ * It is bounded by the number of articles it holds, and gives up half or all of them when
+ * the system is short of memory.
+ */
+final class ArticleMemoryCache implements ComponentCallbacks2 {
+
+    private static final String LOG_TAG = ArticleMemoryCache.class.getName();
+
+    /** Most articles held, across all entries */
+    private static final int MAX_ARTICLES = 2000;
+
+    private static final ArticleMemoryCache sInstance = new ArticleMemoryCache();
+
+    private final LruCache<String, ArticleCache.Entry> mEntries =
+            new LruCache<String, ArticleCache.Entry>(MAX_ARTICLES) {
+                @Override
+                protected int sizeOf(String key, ArticleCache.Entry entry) {
+                    // An entry without articles still takes up a slot
+                    return Math.max(1, entry.getArticles().size());
+                }
+            };
+
+    /**
+     * Returns the process-wide {@link ArticleMemoryCache}.
+     */
+    static ArticleMemoryCache getInstance() {
+        return sInstance;
+    }
+
+    private ArticleMemoryCache() {
+    }
+
+    /**
+     * Returns the entry held for the given request URL, or null if there is none or it
+     * has expired.
+     */
+    ArticleCache.Entry get(String requestUrl) {
+        String key = QueryUtils.normalizeRequestUrl(requestUrl);
+        ArticleCache.Entry entry = mEntries.get(key);
+        if (entry != null && entry.getAge() > ArticleCache.MAX_AGE_MILLIS) {
+            mEntries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Holds the given entry for the given request URL, replacing any previous entry.
+     */
+    void put(String requestUrl, ArticleCache.Entry entry) {
+        mEntries.put(QueryUtils.normalizeRequestUrl(requestUrl), entry);
+    }
+
+    /**
+     * Releases half of the entries when the app is in the background or running low on
+     * memory, and all of them when it is about to be killed or is critically low.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            mEntries.evictAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            mEntries.trimToSize(mEntries.maxSize() / 2);
+        } else {
+            return;
+        }
+        Log.i(LOG_TAG, "Trimmed to " + mEntries.size() + " articles at level " + level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        mEntries.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Returns the number of lookups that found an entry.
+     */
+    int getHitCount() {
+        return mEntries.hitCount();
+    }
+
+    /**
+     * Returns the number of lookups that found no entry.
+     */
+    int getMissCount() {
+        return mEntries.missCount();
+    }
+
+    /**
+     * Returns the number of entries evicted to stay within bounds or release memory.
+     */
+    int getEvictionCount() {
+        return mEntries.evictionCount();
+    }
+
+    /**
+     * Returns the number of articles held.
+     */
+    int getSize() {
+        return mEntries.size();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link ArticleMerger} merges the {@link Article} lists returned by several queries into
+ * a single list without duplicates.
+ */
+final class ArticleMerger {
+
+    /**
+     * The order of the merged list, matching the order-by parameter of the queries.
+     */
+    enum Order {
+        /** Each list is in relevance order, so ranks are interleaved */
+        RELEVANCE,
+        /** Most recently published first */
+        NEWEST
+    }
+
+    /**
+     * Create a private constructor because no one should ever create a {@link ArticleMerger}
+     * object.  This class is only meant to hold static methods.
+     */
+    private ArticleMerger() {
+    }
+
+    /**
+     * Merges the given lists, dropping articles with the same url as an earlier one.
+     *
+     * @param lists are the lists to merge, null lists are skipped
+     * @param order is the order of the merged list
+     * @return the merged list
+     */
+    static List<Article> merge(List<List<Article>> lists, Order order) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+
+        // Articles are equal when their urls are, so one returned by more than one query is
+        // only kept once, the first time it is added
+        Set<Article> merged = new LinkedHashSet<>();
+        if (order == Order.RELEVANCE) {
+            // Take the first of every list, then the second of every list, and so on
+            boolean added = true;
+            for (int rank = 0; added; rank++) {
+                added = false;
+                for (List<Article> list : lists) {
+                    if (list != null && rank < list.size()) {
+                        merged.add(list.get(rank));
+                        added = true;
+                    }
+                }
+            }
+            return new ArrayList<>(merged);
+        }
+
+        for (List<Article> list : lists) {
+            if (list != null) {
+                merged.addAll(list);
+            }
+        }
+        List<Article> articles = new ArrayList<>(merged);
+        Collections.sort(articles, new Comparator<Article>() {
+            @Override
+            public int compare(Article a, Article b) {
+                // Unknown publish times are the smallest value, so they sort last
+                long timeA = a.getPublishTime();
+                long timeB = b.getPublishTime();
+                return timeA < timeB ? 1 : (timeA > timeB ? -1 : 0);
+            }
+        });
+        return articles;
+    }
+}
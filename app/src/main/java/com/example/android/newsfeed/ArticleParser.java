@@ -0,0 +1,270 @@
+package com.example.android.newsfeed;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ArticleParser} pulls the {@link Article}s off a Guardian API response as it
+ * arrives.  Only the fields we present are materialized, everything else in the payload is
+ * skipped without being buffered, so no copy of the whole response is ever held on the
+ * heap.
+ * <p>
+ * It uses nothing of the Android framework, so the unit tests and benchmarks run it on a
+ * plain JVM against recorded responses.
+ */
+final class ArticleParser {
+
+    /** Articles parsed before they are first reported, kept small to show them sooner */
+    private static final int FIRST_BATCH_SIZE = 5;
+
+    /** Articles parsed between two later reports */
+    private static final int BATCH_SIZE = 10;
+
+    /**
+     * Interface definition for a callback to be invoked as articles are parsed off a
+     * response, before the whole response has arrived.
+     */
+    interface ProgressListener {
+        /**
+         * Called on the thread parsing the response each time another batch of articles
+         * has been parsed.
+         *
+         * @param articles are all the articles parsed so far, not to be modified
+         */
+        void onArticlesParsed(List<Article> articles);
+    }
+
+    /**
+     * Interface definition for a check, made between two articles, that the parse is still
+     * wanted.
+     */
+    interface CancellationCheck {
+        /**
+         * Throws an unchecked exception if the parse has been canceled.
+         */
+        void throwIfCanceled();
+    }
+
+    private final CancellationCheck mCancellationCheck;
+    private final ProgressListener mProgressListener;
+
+    // Articles parsed so far
+    private final List<Article> mArticles = new ArrayList<>();
+
+    // Entries of the results skipped for lacking a title or url
+    private int mSkippedCount;
+
+    /**
+     * Constructs a new {@link ArticleParser}.
+     *
+     * @param cancellationCheck stops the parse between two articles, may be null
+     * @param progressListener is told about the articles parsed so far in batches, may be
+     *                         null
+     */
+    ArticleParser(CancellationCheck cancellationCheck, ProgressListener progressListener) {
+        mCancellationCheck = cancellationCheck;
+        mProgressListener = progressListener;
+    }
+
+    /**
+     * Parses the articles off the given stream.  If the JSON is malformed, the articles
+     * parsed up to the problem are still kept by {@link #getArticles}.
+     *
+     * @throws IOException if the stream can't be read, or
+     *                     {@link com.google.gson.stream.MalformedJsonException} if it isn't
+     *                     JSON
+     * @throws IllegalStateException if the JSON isn't shaped like a response
+     */
+    void parse(InputStream inputStream) throws IOException {
+        JsonReader reader = newReader(inputStream);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            // Only the "response" object is of interest, skip anything else at the root
+            if (reader.nextName().equals("response")) {
+                readResponse(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Returns the articles parsed so far.
+     */
+    List<Article> getArticles() {
+        return mArticles;
+    }
+
+    /**
+     * Returns the number of entries of the results skipped for lacking a title or url.
+     */
+    int getSkippedCount() {
+        return mSkippedCount;
+    }
+
+    /**
+     * Reads the "response" object, adding an {@link Article} for each entry of its
+     * "results" array.
+     */
+    private void readResponse(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("results")) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (mCancellationCheck != null) {
+                        mCancellationCheck.throwIfCanceled();
+                    }
+                    Article newsItem = readArticle(reader);
+                    if (newsItem == null) {
+                        mSkippedCount++;
+                        continue;
+                    }
+                    mArticles.add(newsItem);
+                    if (mProgressListener != null && isBatchEnd(mArticles.size())) {
+                        mProgressListener.onArticlesParsed(
+                                Collections.unmodifiableList(new ArrayList<>(mArticles)));
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Returns true if the given number of articles parsed completes a batch to report.
+     */
+    private static boolean isBatchEnd(int count) {
+        return count == FIRST_BATCH_SIZE
+                || (count > FIRST_BATCH_SIZE && (count - FIRST_BATCH_SIZE) % BATCH_SIZE == 0);
+    }
+
+    /**
+     * Reads a single entry of the "results" array.
+     *
+     * @return the {@link Article} or null if the entry lacks a title or url
+     */
+    private static Article readArticle(JsonReader reader) throws IOException {
+        String title = null;
+        String sectionName = null;
+        String publicationDate = null;
+        String url = null;
+        Map<String, String> fields = Collections.emptyMap();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "webTitle":
+                    title = nextStringOrNull(reader);
+                    break;
+                case "sectionName":
+                    sectionName = nextStringOrNull(reader);
+                    break;
+                case "webPublicationDate":
+                    publicationDate = nextStringOrNull(reader);
+                    break;
+                case "webUrl":
+                    url = nextStringOrNull(reader);
+                    break;
+                case "fields":
+                    fields = readFields(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (title == null || url == null) {
+            return null;
+        }
+
+        // Create a new {@link Article} object with the title, publication date,
+        // and url of the article, along with the fields the query asked for.
+        return new Article(title, sectionName, fields.get("byline"),
+                PublishDateFormatter.parse(publicationDate), Article.encodeUrl(url),
+                fields.get("thumbnail"), fields.get("trailText"));
+    }
+
+    /**
+     * Reads the "fields" object of an article, holding the fields asked for with
+     * show-fields (see {@link ArticleProjection}).
+     *
+     * @return the string values of the fields, by name
+     */
+    private static Map<String, String> readFields(JsonReader reader) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.STRING) {
+                fields.put(name, reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return fields;
+    }
+
+    /**
+     * Reads the string at the given path of nested object names off the given stream,
+     * skipping everything else.
+     *
+     * @return the string, or null if there is none at that path
+     * @throws IllegalStateException if the JSON isn't shaped as expected
+     */
+    static String parseStringAt(InputStream inputStream, String... path) throws IOException {
+        JsonReader reader = newReader(inputStream);
+        for (int depth = 0; depth < path.length - 1; depth++) {
+            reader.beginObject();
+            while (reader.hasNext() && !reader.nextName().equals(path[depth])) {
+                reader.skipValue();
+            }
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(path[path.length - 1])) {
+                return nextStringOrNull(reader);
+            }
+            reader.skipValue();
+        }
+        return null;
+    }
+
+    private static JsonReader newReader(InputStream inputStream) {
+        return new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+    }
+
+    /**
+     * Returns the next string value, or null if the next value is a JSON null.
+     */
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.android.newsfeed;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link ArticleProjection} is the set of {@link Article} fields a query asks the Guardian
+ * API for.  The API always returns the title, section, publish time and URL of a result,
+ * anything else has to be asked for with {@code show-fields}, so only the extra fields
+ * something actually shows are requested and parsed.
+ */
+final class ArticleProjection {
+
+    /**
+     * A field of an {@link Article}, with the name of the API field it is read from if it
+     * has to be asked for.
+     */
+    enum Field {
+        TITLE(null),
+        SECTION(null),
+        PUBLISH_TIME(null),
+        URL(null),
+        /** The byline, much smaller in the payload than the contributor tags */
+        AUTHOR("byline"),
+        /** URL of a thumbnail image of the article */
+        THUMBNAIL("thumbnail"),
+        /** Standfirst of the article, as HTML */
+        TRAIL_TEXT("trailText");
+
+        private final String mApiName;
+
+        Field(String apiName) {
+            mApiName = apiName;
+        }
+    }
+
+    /** The fields every projection includes, as the API returns them regardless */
+    private static final Set<Field> DEFAULT_FIELDS =
+            EnumSet.of(Field.TITLE, Field.SECTION, Field.PUBLISH_TIME, Field.URL);
+
+    private final Set<Field> mFields;
+
+    /**
+     * Constructs a new {@link ArticleProjection}.
+     *
+     * @param fields are the fields needed, on top of the ones the API always returns
+     */
+    ArticleProjection(Set<Field> fields) {
+        Set<Field> projection = EnumSet.copyOf(DEFAULT_FIELDS);
+        projection.addAll(fields);
+        mFields = Collections.unmodifiableSet(projection);
+    }
+
+    /**
+     * Returns the value of the {@code show-fields} parameter asking for the fields of the
+     * projection, or null if none of them has to be asked for.
+     */
+    String getShowFields() {
+        List<String> names = new ArrayList<>(mFields.size());
+        for (Field field : mFields) {
+            if (field.mApiName != null) {
+                names.add(field.mApiName);
+            }
+        }
+        return names.isEmpty() ? null : TextUtils.join(",", names);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ArticleProjection
+                && mFields.equals(((ArticleProjection) o).mFields));
+    }
+
+    @Override
+    public int hashCode() {
+        return mFields.hashCode();
+    }
+}
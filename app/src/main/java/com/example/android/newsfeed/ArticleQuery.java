@@ -0,0 +1,231 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link ArticleQuery} is the feed query described by the user's settings.  It builds the
+ * Guardian request URLs for it, so the activity and background work query the same thing.
+ */
+final class ArticleQuery {
+
+    /** URL for news article data from the Guardian WebAPI */
+    private static final String GUARDIAN_REQUEST_URL =
+            "https://content.guardianapis.com/search";
+
+    /** URL single articles are requested from, followed by their path on the website */
+    private static final String GUARDIAN_CONTENT_URL = "https://content.guardianapis.com";
+
+    private final String mApiKey;
+    private final int mNumberResults;
+    private final List<String> mSports;
+
+    // Fields requested for every article, the ones the list rows show
+    private final ArticleProjection mProjection;
+
+    // Whether articles are loaded a page at a time as the list is scrolled
+    private final boolean mPaged;
+    boolean isPaged() {
+        return mPaged;
+    }
+
+    // Whether the most recently published articles are shown first, rather than the most
+    // relevant, which lets a refresh only fetch the articles published since the last one
+    private final boolean mNewestFirst;
+
+    // Whether the text of the top articles is fetched ahead of time to read them in the app
+    private final boolean mReaderMode;
+    boolean isReaderMode() {
+        return mReaderMode;
+    }
+
+    private ArticleQuery(String apiKey, int numberResults, List<String> sports, boolean paged,
+                         ArticleProjection projection, boolean newestFirst, boolean readerMode) {
+        mApiKey = apiKey;
+        mNumberResults = numberResults;
+        mSports = sports;
+        mPaged = paged;
+        mProjection = projection;
+        mNewestFirst = newestFirst;
+        mReaderMode = readerMode;
+    }
+
+    /**
+     * Returns the query described by the current settings.
+     */
+    static ArticleQuery fromPreferences(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        //NOTE TO REVIEWER: I know this is probably something we wouldn't want to do in a "play store"
+        //app, but has been added as a convenience to not having to deal with remove my api key before
+        // publishing the source.  Suggestions?
+        String apiKey = sharedPrefs.getString(
+                context.getString(R.string.settings_api_key_key),
+                context.getString(R.string.settings_api_key_default));
+
+        String numberResults = sharedPrefs.getString(
+                context.getString(R.string.settings_number_results_key),
+                context.getString(R.string.settings_number_results_default));
+
+        boolean paged = sharedPrefs.getBoolean(
+                context.getString(R.string.settings_paged_loading_key),
+                context.getResources().getBoolean(R.bool.settings_paged_loading_default));
+
+        boolean newestFirst = sharedPrefs.getBoolean(
+                context.getString(R.string.settings_newest_first_key),
+                context.getResources().getBoolean(R.bool.settings_newest_first_default));
+
+        boolean readerMode = sharedPrefs.getBoolean(
+                context.getString(R.string.settings_reader_mode_key),
+                context.getResources().getBoolean(R.bool.settings_reader_mode_default));
+
+        return new ArticleQuery(apiKey, Integer.parseInt(numberResults),
+                getSelectedSports(context, sharedPrefs), paged, ArticleAdapter.PROJECTION,
+                newestFirst, readerMode);
+    }
+
+    /**
+     * Returns the number of articles to show, or to hold at once when loading in pages.
+     */
+    int getNumberResults() {
+        return mNumberResults;
+    }
+
+    /**
+     * Returns the order the results of the request URLs are merged in.
+     */
+    ArticleMerger.Order getOrder() {
+        return mNewestFirst ? ArticleMerger.Order.NEWEST : ArticleMerger.Order.RELEVANCE;
+    }
+
+    /**
+     * Returns the request URLs for the query, one per sport.
+     *
+     * @param page is the page to request when loading in pages, starting at 1
+     */
+    List<String> getRequestUrls(int page) {
+        // With several sports each is queried separately and the results are merged, so
+        // they share the number of results between them
+        String pageSize;
+        if (mPaged) {
+            pageSize = String.valueOf(PageWindow.PAGE_SIZE);
+        } else {
+            pageSize = String.valueOf((mNumberResults + mSports.size() - 1) / mSports.size());
+        }
+
+        List<String> urls = new ArrayList<>(mSports.size());
+        for (String sport : mSports) {
+            Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
+            Uri.Builder uriBuilder = baseUri.buildUpon();
+
+            uriBuilder.appendQueryParameter("q", sport);
+            uriBuilder.appendQueryParameter("production-office", "us");
+            uriBuilder.appendQueryParameter("order-by", mNewestFirst ? "newest" : "relevance");
+            uriBuilder.appendQueryParameter("page-size", pageSize);
+            String showFields = mProjection.getShowFields();
+            if (showFields != null) {
+                uriBuilder.appendQueryParameter("show-fields", showFields);
+            }
+            if (mPaged) {
+                uriBuilder.appendQueryParameter("page", String.valueOf(page));
+            }
+            uriBuilder.appendQueryParameter("api-key", mApiKey);
+
+            urls.add(uriBuilder.toString());
+        }
+        return urls;
+    }
+
+    /**
+     * Returns the request URL for the text of the given article, or null if its URL
+     * doesn't name an article.
+     */
+    String getBodyRequestUrl(Article article) {
+        String url = article.getUrl();
+        String path = url != null ? Uri.parse(url).getPath() : null;
+        if (path == null || path.length() <= 1) {
+            return null;
+        }
+
+        // Articles have the same path in the API as on the website
+        return Uri.parse(GUARDIAN_CONTENT_URL).buildUpon()
+                .appendEncodedPath(path.substring(1))
+                .appendQueryParameter("show-fields", "bodyText")
+                .appendQueryParameter("api-key", mApiKey)
+                .toString();
+    }
+
+    /**
+     * Returns true if the given query requests the same articles as this one, whatever
+     * it does with them.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ArticleQuery)) {
+            return false;
+        }
+        ArticleQuery query = (ArticleQuery) o;
+        return mNumberResults == query.mNumberResults
+                && mPaged == query.mPaged
+                && mNewestFirst == query.mNewestFirst
+                && mApiKey.equals(query.mApiKey)
+                && mSports.equals(query.mSports)
+                && mProjection.equals(query.mProjection);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mApiKey.hashCode();
+        result = 31 * result + mNumberResults;
+        result = 31 * result + mSports.hashCode();
+        result = 31 * result + (mPaged ? 1 : 0);
+        result = 31 * result + (mNewestFirst ? 1 : 0);
+        result = 31 * result + mProjection.hashCode();
+        return result;
+    }
+
+    /**
+     * Returns the sports to query, several of them when the multiple sports preference is
+     * set, in the order they are listed in the settings.
+     */
+    private static List<String> getSelectedSports(Context context, SharedPreferences sharedPrefs) {
+        String sport = sharedPrefs.getString(
+                context.getString(R.string.settings_sport_key),
+                context.getString(R.string.settings_sport_default));
+
+        boolean multiSport = sharedPrefs.getBoolean(
+                context.getString(R.string.settings_multi_sport_key),
+                context.getResources().getBoolean(R.bool.settings_multi_sport_default));
+        if (!multiSport) {
+            return Collections.singletonList(sport);
+        }
+
+        Set<String> selected = sharedPrefs.getStringSet(
+                context.getString(R.string.settings_sports_key),
+                new HashSet<>(Arrays.asList(
+                        context.getResources().getStringArray(R.array.settings_sports_default))));
+
+        List<String> sports = new ArrayList<>();
+        for (String value : context.getResources().getStringArray(R.array.settings_sport_values)) {
+            if (selected.contains(value)) {
+                sports.add(value);
+            }
+        }
+        if (sports.isEmpty()) {
+            return Collections.singletonList(sport);
+        }
+        return sports;
+    }
+}
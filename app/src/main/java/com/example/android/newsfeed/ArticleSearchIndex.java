@@ -0,0 +1,283 @@
+package com.example.android.newsfeed;
+
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * {@link ArticleSearchIndex} is an in-memory inverted index over the title, section and
+ * author of every {@link Article} the app has fetched, so the feed can be searched without
+ * going to the network.  Articles are added as they are stored in or read from the
+ * {@link ArticleCache}, and an article fetched again replaces the one indexed for its URL.
+ * <p>
+ * Every word of a query must match the start of a word of an article, and matches are
+ * ranked by the fields they were found in, title first, then by publish time.
+ */
+final class ArticleSearchIndex {
+
+    /** Weights of a match in each field, the title counts most */
+    private static final int WEIGHT_TITLE = 4;
+    private static final int WEIGHT_AUTHOR = 2;
+    private static final int WEIGHT_SECTION = 1;
+
+    /** Added to the weight of a match of the whole word rather than its start */
+    private static final int WEIGHT_EXACT_BONUS = 1;
+
+    private static final ArticleSearchIndex sInstance = new ArticleSearchIndex();
+
+    // Indexed articles, an article's document id is its position
+    private final List<Article> mDocuments = new ArrayList<>();
+
+    // Document id of each indexed article, articles are equal when their URLs are
+    private final Map<Article, Integer> mDocumentIds = new HashMap<>();
+
+    // Documents containing each word, sorted so words starting with a prefix are adjacent
+    private final TreeMap<String, Postings> mPostings = new TreeMap<>();
+
+    /**
+     * Returns the process-wide {@link ArticleSearchIndex}.
+     */
+    static ArticleSearchIndex getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ArticleSearchIndex() {
+    }
+
+    /**
+     * Indexes the given articles, replacing any article already indexed with the same URL.
+     */
+    synchronized void addAll(List<Article> articles) {
+        for (Article article : articles) {
+            add(article);
+        }
+    }
+
+    private void add(Article article) {
+        if (article.getUrlBytes() == null) {
+            return;
+        }
+
+        Integer documentId = mDocumentIds.get(article);
+        if (documentId == null) {
+            documentId = mDocuments.size();
+            mDocuments.add(article);
+            mDocumentIds.put(article, documentId);
+        } else {
+            Article indexed = mDocuments.get(documentId);
+            mDocuments.set(documentId, article);
+            if (hasSameText(indexed, article)) {
+                return;
+            }
+            // Drop the words of the article as it was before indexing its current words
+            for (String word : getWeights(indexed).keySet()) {
+                Postings postings = mPostings.get(word);
+                postings.remove(documentId);
+                if (postings.isEmpty()) {
+                    mPostings.remove(word);
+                }
+            }
+        }
+
+        for (Map.Entry<String, Integer> weight : getWeights(article).entrySet()) {
+            Postings postings = mPostings.get(weight.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                mPostings.put(weight.getKey(), postings);
+            }
+            postings.add(documentId, weight.getValue());
+        }
+    }
+
+    /**
+     * Returns the number of articles indexed.
+     */
+    synchronized int size() {
+        return mDocuments.size();
+    }
+
+    /**
+     * Returns the indexed articles matching the given query, best match first.
+     *
+     * @param query is the text to search for, every word of it must match the start of a
+     *              word of the article's title, section or author
+     * @param limit is the most articles to return
+     */
+    synchronized List<Article> search(String query, int limit) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty() || mDocuments.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Scores of the documents matching every word so far, or null before the first word
+        int[] scores = null;
+        for (String word : words) {
+            int[] wordScores = new int[mDocuments.size()];
+            SortedMap<String, Postings> matches =
+                    mPostings.subMap(word, word + Character.MAX_VALUE);
+            for (Map.Entry<String, Postings> match : matches.entrySet()) {
+                int bonus = match.getKey().length() == word.length() ? WEIGHT_EXACT_BONUS : 0;
+                match.getValue().scoreInto(wordScores, bonus);
+            }
+
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                for (int i = 0; i < scores.length; i++) {
+                    scores[i] = wordScores[i] == 0 ? 0 : scores[i] + wordScores[i];
+                }
+            }
+        }
+
+        // Keep the best matches in a heap with the worst of them on top, so ranking doesn't
+        // sort every match
+        final int[] finalScores = scores;
+        Comparator<Integer> byRank = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (finalScores[a] != finalScores[b]) {
+                    return finalScores[a] > finalScores[b] ? -1 : 1;
+                }
+                long timeA = mDocuments.get(a).getPublishTime();
+                long timeB = mDocuments.get(b).getPublishTime();
+                return timeA < timeB ? 1 : (timeA > timeB ? -1 : 0);
+            }
+        };
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1,
+                Collections.reverseOrder(byRank));
+        for (int i = 0; i < finalScores.length; i++) {
+            if (finalScores[i] > 0) {
+                best.add(i);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        List<Integer> ranked = new ArrayList<>(best);
+        Collections.sort(ranked, byRank);
+        List<Article> results = new ArrayList<>(ranked.size());
+        for (Integer documentId : ranked) {
+            results.add(mDocuments.get(documentId));
+        }
+        return results;
+    }
+
+    //region Tokenizing
+
+    private static boolean hasSameText(Article a, Article b) {
+        return equals(a.getTitle(), b.getTitle())
+                && equals(a.getSectionName(), b.getSectionName())
+                && equals(a.getAuthor(), b.getAuthor());
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Returns the words of the given article, each with the weight of the best field it
+     * appears in.
+     */
+    private static Map<String, Integer> getWeights(Article article) {
+        Map<String, Integer> weights = new HashMap<>();
+        putWeights(weights, article.getSectionName(), WEIGHT_SECTION);
+        putWeights(weights, article.getAuthor(), WEIGHT_AUTHOR);
+        putWeights(weights, article.getTitle(), WEIGHT_TITLE);
+        return weights;
+    }
+
+    private static void putWeights(Map<String, Integer> weights, String text, int weight) {
+        for (String word : tokenize(text)) {
+            Integer current = weights.get(word);
+            if (current == null || current < weight) {
+                weights.put(word, weight);
+            }
+        }
+    }
+
+    /**
+     * Splits the given text into lower case words of letters and digits.
+     */
+    private static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> words = new ArrayList<>();
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean inWord = i < lowerCase.length()
+                    && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    //endregion
+
+    /**
+     * The documents a word appears in, along with the weight of the word in each of them.
+     */
+    private static final class Postings {
+
+        private int[] mDocumentIds = new int[2];
+        private int[] mWeights = new int[2];
+        private int mSize;
+
+        void add(int documentId, int weight) {
+            if (mSize == mDocumentIds.length) {
+                mDocumentIds = Arrays.copyOf(mDocumentIds, mSize * 2);
+                mWeights = Arrays.copyOf(mWeights, mSize * 2);
+            }
+            mDocumentIds[mSize] = documentId;
+            mWeights[mSize] = weight;
+            mSize++;
+        }
+
+        void remove(int documentId) {
+            for (int i = 0; i < mSize; i++) {
+                if (mDocumentIds[i] == documentId) {
+                    // Order doesn't matter, so move the last posting into the gap
+                    mSize--;
+                    mDocumentIds[i] = mDocumentIds[mSize];
+                    mWeights[i] = mWeights[mSize];
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return mSize == 0;
+        }
+
+        /**
+         * Raises the score of each document to the weight of the word in it, if higher.
+         */
+        void scoreInto(int[] scores, int bonus) {
+            for (int i = 0; i < mSize; i++) {
+                int score = mWeights[i] + bonus;
+                if (scores[mDocumentIds[i]] < score) {
+                    scores[mDocumentIds[i]] = score;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.android.newsfeed;
+
+import android.graphics.Bitmap;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * {@link BitmapPool} holds bitmaps no longer shown so their memory can be decoded into
+ * again (see {@link android.graphics.BitmapFactory.Options#inBitmap}), rather than each
+ * decode allocating a new bitmap and the garbage collector pausing scrolling to free the
+ * old ones.
+ */
+final class BitmapPool {
+
+    private final int mMaxBytes;
+
+    // Pooled bitmaps, the most recently added first, guarded by this
+    private final LinkedList<Bitmap> mBitmaps = new LinkedList<>();
+
+    private int mBytes;
+
+    /**
+     * Constructs a new {@link BitmapPool}.
+     *
+     * @param maxBytes is the total size of the bitmaps the pool holds at most
+     */
+    BitmapPool(int maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Adds the given bitmap to the pool, if it can be decoded into and there is room.
+     * The bitmap must no longer be shown or cached anywhere.
+     */
+    synchronized void put(Bitmap bitmap) {
+        if (!bitmap.isMutable() || bitmap.isRecycled()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > mMaxBytes) {
+            return;
+        }
+        while (mBytes + size > mMaxBytes) {
+            mBytes -= mBitmaps.removeLast().getAllocationByteCount();
+        }
+        mBitmaps.addFirst(bitmap);
+        mBytes += size;
+    }
+
+    /**
+     * Removes and returns a pooled bitmap large enough to decode an image of the given size
+     * into, or null if there is none.
+     */
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        int size = width * height * bytesPerPixel(config);
+        Iterator<Bitmap> iterator = mBitmaps.iterator();
+        while (iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            // Don't waste a much larger bitmap on a small image
+            int allocation = bitmap.getAllocationByteCount();
+            if (allocation >= size && allocation <= size * 2) {
+                iterator.remove();
+                mBytes -= allocation;
+                return bitmap;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops every pooled bitmap.
+     */
+    synchronized void clear() {
+        mBitmaps.clear();
+        mBytes = 0;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        return config == Bitmap.Config.RGB_565 ? 2 : 4;
+    }
+}
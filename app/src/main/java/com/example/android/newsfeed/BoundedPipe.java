@@ -0,0 +1,135 @@
+package com.example.android.newsfeed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * {@link BoundedPipe} hands the bytes read off the network on one thread to the parser on
+ * another.  It holds at most a few chunks, so once the parser falls behind the reader waits
+ * for it, rather than buffering a whole response.  A failure on either end reaches the
+ * other: a read that failed fails the parse instead of looking like the end of the
+ * response, and a parse that stopped stops the reading.
+ */
+final class BoundedPipe {
+
+    /** Size of the chunks the bytes are handed over in */
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    // Marks the end of the bytes written
+    private static final byte[] END = new byte[0];
+
+    private final BlockingQueue<byte[]> mChunks;
+
+    // Why writing failed, set before END is written
+    private volatile IOException mWriteFailure;
+
+    // Whether the reading end was closed, making further writes pointless
+    private volatile boolean mReadClosed;
+
+    /**
+     * Constructs a new {@link BoundedPipe}.
+     *
+     * @param maxChunks is the number of chunks written but not yet read at most
+     */
+    BoundedPipe(int maxChunks) {
+        mChunks = new ArrayBlockingQueue<>(maxChunks);
+    }
+
+    /**
+     * Copies the given stream into the pipe, waiting whenever the pipe is full, then marks
+     * the end of the bytes.  Copying stops early, without failing, once the reading end is
+     * closed.  If reading the stream fails, reading the pipe fails too.
+     *
+     * @throws IOException if the stream could not be read
+     */
+    void writeFrom(InputStream in) throws IOException {
+        try {
+            byte[] buffer = new byte[CHUNK_SIZE];
+            int count;
+            while (!mReadClosed && (count = in.read(buffer)) != -1) {
+                if (count > 0) {
+                    put(Arrays.copyOf(buffer, count));
+                }
+            }
+            put(END);
+        } catch (IOException | RuntimeException e) {
+            mWriteFailure = e instanceof IOException ? (IOException) e : new IOException(e);
+            // Whatever was read is of no use without the rest, so make room for the end
+            mChunks.clear();
+            mChunks.offer(END);
+            throw e;
+        }
+    }
+
+    private void put(byte[] chunk) throws IOException {
+        if (mReadClosed) {
+            return;
+        }
+        try {
+            mChunks.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * Returns the reading end of the pipe.  It must be read from a thread other than the one
+     * writing, and closed once no longer read, so the writer doesn't wait for it forever.
+     */
+    InputStream getInputStream() {
+        return new InputStream() {
+
+            // Chunk being read and the position in it
+            private byte[] mChunk;
+            private int mPosition;
+
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (mChunk == null || mPosition == mChunk.length) {
+                    if (mChunk == END) {
+                        return -1;
+                    }
+                    try {
+                        mChunk = mChunks.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                    mPosition = 0;
+                    if (mChunk == END) {
+                        if (mWriteFailure != null) {
+                            throw new IOException("Response cut short", mWriteFailure);
+                        }
+                        return -1;
+                    }
+                }
+
+                int count = Math.min(len, mChunk.length - mPosition);
+                System.arraycopy(mChunk, mPosition, b, off, count);
+                mPosition += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+                mReadClosed = true;
+                // Unblock a writer waiting for room
+                mChunks.clear();
+            }
+        };
+    }
+}
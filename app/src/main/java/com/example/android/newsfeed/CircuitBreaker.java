@@ -0,0 +1,133 @@
+package com.example.android.newsfeed;
+
+import android.os.SystemClock;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CircuitBreaker} stops requests to the Guardian API for a while once several in a
+ * row have failed, or the API asked for fewer requests, rather than have every reload make
+ * things worse.  Once the break is over a single request is let through; if it fails the
+ * next break is twice as long.  When the API says how long to wait with Retry-After, the
+ * break lasts exactly that long instead.
+ */
+final class CircuitBreaker {
+
+    private static final String LOG_TAG = CircuitBreaker.class.getName();
+
+    /** Failed requests in a row that open the circuit */
+    private static final int FAILURE_THRESHOLD = 3;
+
+    /** How long requests are stopped for the first time the circuit opens */
+    private static final long INITIAL_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /** Longest requests are stopped for */
+    private static final long MAX_OPEN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Interface definition for the clock breaks are timed with.
+     */
+    interface Clock {
+        /**
+         * Returns the milliseconds since some fixed point, never going backwards.
+         */
+        long elapsedRealtime();
+    }
+
+    private static final CircuitBreaker sInstance = new CircuitBreaker(new Clock() {
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+    });
+
+    private final Clock mClock;
+
+    private int mConsecutiveFailures;
+
+    // Elapsed realtime requests are stopped until, or 0 while the circuit is closed
+    private long mOpenUntil;
+
+    // How long the circuit opens for the next time
+    private long mOpenMillis = INITIAL_OPEN_MILLIS;
+
+    // Whether the single request let through after a break is in flight
+    private boolean mTrialInFlight;
+
+    /**
+     * Returns the process-wide {@link CircuitBreaker}.
+     */
+    static CircuitBreaker getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    CircuitBreaker(Clock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Returns true if a request may be made now.  Every request allowed must be followed by
+     * a call to {@link #onSuccess}, {@link #onFailure} or {@link #onAbandoned}.
+     */
+    synchronized boolean allowRequest() {
+        if (mOpenUntil == 0) {
+            return true;
+        }
+        if (mClock.elapsedRealtime() < mOpenUntil || mTrialInFlight) {
+            return false;
+        }
+        // The break is over, find out whether the API has recovered with a single request
+        mTrialInFlight = true;
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        mConsecutiveFailures = 0;
+        mOpenUntil = 0;
+        mOpenMillis = INITIAL_OPEN_MILLIS;
+        mTrialInFlight = false;
+    }
+
+    /**
+     * Records a failed request.
+     *
+     * @param retryAfterMillis is how long the API asked to wait before the next request,
+     *                         or 0.  The circuit opens for exactly that long, unless it
+     *                         already is for longer.  A caller that waits out a short
+     *                         Retry-After itself passes 0, so it doesn't stop the request
+     *                         it is about to retry.
+     */
+    synchronized void onFailure(long retryAfterMillis) {
+        mConsecutiveFailures++;
+        boolean trialFailed = mTrialInFlight;
+        mTrialInFlight = false;
+
+        long now = mClock.elapsedRealtime();
+        if (retryAfterMillis > 0) {
+            // The API said when it will take requests again, so neither guess nor back off
+            mOpenUntil = Math.max(mOpenUntil, now + retryAfterMillis);
+            Log.w(LOG_TAG, "Stopping requests for " + retryAfterMillis + "ms as asked");
+            return;
+        }
+        if (!trialFailed && (mOpenUntil > now || mConsecutiveFailures < FAILURE_THRESHOLD)) {
+            // Either a request made before the circuit opened, or not enough failures yet
+            return;
+        }
+
+        mOpenUntil = now + mOpenMillis;
+        Log.w(LOG_TAG, "Stopping requests for " + mOpenMillis + "ms after "
+                + mConsecutiveFailures + " failures");
+        mOpenMillis = Math.min(mOpenMillis * 2, MAX_OPEN_MILLIS);
+    }
+
+    /**
+     * Records that an allowed request was not made or not finished, for instance because it
+     * was canceled, so it tells nothing about the API.
+     */
+    synchronized void onAbandoned() {
+        mTrialInFlight = false;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.android.newsfeed;
+
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.support.annotation.VisibleForTesting;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DeltaRefresh} refreshes the articles of a query ordered by newest by only asking
+ * for the articles published since the newest one already held, and merging them into the
+ * held ones.  A steady-state refresh then transfers and parses a handful of articles
+ * rather than the whole list again.
+ * <p>
+ * Queries ordered by relevance, paged queries, and queries with nothing held yet, or held
+ * for too long, are fetched in full as before.
+ */
+final class DeltaRefresh {
+
+    /**
+     * Held articles last fetched in full longer ago than this are fetched in full again,
+     * rather than patched up, so articles since removed or changed don't linger
+     */
+    private static final long MAX_DELTA_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /** Format of the from-date parameter, the same as the publication dates */
+    private static final String FROM_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    /**
+     * Create a private constructor because no one should ever create a {@link DeltaRefresh}
+     * object.  This class is only meant to hold static methods.
+     */
+    private DeltaRefresh() {
+    }
+
+    /**
+     * Fetches the articles for the given request URL as {@link RequestCoalescer} does,
+     * only fetching the ones published since the newest of the given entry when possible.
+     *
+     * @param cached the entry previously fetched for the URL, if any
+     * @param progressListener is told about the articles parsed so far of a full fetch,
+     *                         may be null
+     */
+    static FetchResult fetch(String requestUrl, ArticleCache.Entry cached,
+                             CancellationSignal cancellationSignal,
+                             ArticleParser.ProgressListener progressListener) {
+        String deltaRequestUrl = getDeltaRequestUrl(requestUrl, cached);
+        if (deltaRequestUrl == null) {
+            return RequestCoalescer.getInstance().fetchNewsData(
+                    requestUrl, cached, cancellationSignal, progressListener);
+        }
+
+        // The delta URL changes with every new article, so there is nothing to revalidate
+        FetchResult result = RequestCoalescer.getInstance().fetchNewsData(
+                deltaRequestUrl, null, cancellationSignal, null);
+        if (!result.isSuccess()) {
+            return result;
+        }
+        return FetchResult.success(merge(requestUrl, cached, result.getEntry()));
+    }
+
+    /**
+     * Returns the URL requesting the articles of the given request URL published since the
+     * newest article of the given entry, or null if the articles have to be fetched in full.
+     */
+    private static String getDeltaRequestUrl(String requestUrl, ArticleCache.Entry cached) {
+        if (cached == null || isTooOld(cached, System.currentTimeMillis())) {
+            return null;
+        }
+
+        // Articles newer than the held ones only come first when ordered by newest, and
+        // would shift the following pages if paged
+        Uri uri = Uri.parse(requestUrl);
+        if (!"newest".equals(uri.getQueryParameter("order-by"))
+                || uri.getQueryParameter("page") != null) {
+            return null;
+        }
+
+        long newest = PublishDateFormatter.UNKNOWN;
+        for (Article article : cached.getArticles()) {
+            newest = Math.max(newest, article.getPublishTime());
+        }
+        if (newest == PublishDateFormatter.UNKNOWN) {
+            return null;
+        }
+
+        // The from date is inclusive, so the newest article is fetched again and dropped as
+        // a duplicate when merged
+        SimpleDateFormat format = new SimpleDateFormat(FROM_DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return uri.buildUpon()
+                .appendQueryParameter("from-date", format.format(new Date(newest)))
+                .appendQueryParameter("use-date", "published")
+                .toString();
+    }
+
+    /**
+     * Returns true if the given entry was last fetched in full too long ago to be patched
+     * up.  Merged entries keep the time of the full fetch they started from, so a run of
+     * delta refreshes still ends in a full one.
+     */
+    @VisibleForTesting
+    static boolean isTooOld(ArticleCache.Entry cached, long now) {
+        return now - cached.getFullFetchedAt() > MAX_DELTA_AGE_MILLIS;
+    }
+
+    /**
+     * Returns the entry merging the given delta into the held articles, trimmed to the
+     * number of articles the request URL asks for.
+     */
+    private static ArticleCache.Entry merge(String requestUrl, ArticleCache.Entry cached,
+                                            ArticleCache.Entry delta) {
+        int limit = cached.getArticles().size();
+        String pageSize = Uri.parse(requestUrl).getQueryParameter("page-size");
+        if (pageSize != null) {
+            try {
+                limit = Integer.parseInt(pageSize);
+            } catch (NumberFormatException ignored) {
+                // Keep as many as were held
+            }
+        }
+        return merge(cached, delta, limit);
+    }
+
+    /**
+     * Returns the entry holding the new articles of the given delta ahead of the held ones,
+     * without duplicates, trimmed to the given number of articles.
+     */
+    @VisibleForTesting
+    static ArticleCache.Entry merge(ArticleCache.Entry cached, ArticleCache.Entry delta,
+                                    int limit) {
+        List<Article> articles = ArticleMerger.merge(
+                Arrays.asList(delta.getArticles(), cached.getArticles()),
+                ArticleMerger.Order.NEWEST);
+        if (articles.size() > limit) {
+            articles = new ArrayList<>(articles.subList(0, limit));
+        }
+
+        // The validators of the full request no longer describe these articles, and only
+        // the new ones were fetched
+        return new ArticleCache.Entry(articles, delta.getFetchedAt(),
+                cached.getFullFetchedAt(), null, null);
+    }
+}
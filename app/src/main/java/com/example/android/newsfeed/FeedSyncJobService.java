@@ -0,0 +1,115 @@
+package com.example.android.newsfeed;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link FeedSyncJobService} periodically fetches the feed the settings describe into the
+ * {@link ArticleCache}, so opening the app shows a recent feed without waiting on the
+ * network.  It only runs on an unmetered network while charging, and backs off
+ * exponentially when a sync fails.  It is scheduled by {@link FeedSyncScheduler}.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class FeedSyncJobService extends JobService {
+
+    private static final String LOG_TAG = FeedSyncJobService.class.getName();
+
+    // Set when the system stops the job before it finishes
+    private volatile boolean mStopped;
+
+    // Cancels the request of the sync in progress when the job is stopped
+    private volatile CancellationSignal mCancellationSignal;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        Log.i(LOG_TAG, "onStartJob");
+        mStopped = false;
+
+        // Jobs are started on the main thread, so sync on a worker thread
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean synced = sync();
+                if (!mStopped) {
+                    // Ask for a retry with backoff if any request failed
+                    jobFinished(params, !synced);
+                }
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        Log.i(LOG_TAG, "onStopJob");
+        mStopped = true;
+        CancellationSignal cancellationSignal = mCancellationSignal;
+        if (cancellationSignal != null) {
+            cancellationSignal.cancel();
+        }
+
+        // Constraints no longer hold, try again once they do
+        return true;
+    }
+
+    /**
+     * Fetches the articles for every request URL of the first page of the query, revalidating
+     * what is already cached, and stores them in the cache.  In reader mode the text of the
+     * top articles is fetched as well.
+     *
+     * @return true if every request succeeded
+     */
+    private boolean sync() {
+        ArticleCache cache = ArticleCache.getInstance(this);
+        ArticleQuery query = ArticleQuery.fromPreferences(this);
+
+        boolean synced = true;
+        List<List<Article>> lists = new ArrayList<>();
+        for (String url : query.getRequestUrls(1)) {
+            CancellationSignal cancellationSignal = new CancellationSignal();
+            mCancellationSignal = cancellationSignal;
+            if (mStopped) {
+                return false;
+            }
+
+            FetchResult result;
+            try {
+                result = DeltaRefresh.fetch(url, cache.get(url), cancellationSignal, null);
+            } catch (OperationCanceledException e) {
+                return false;
+            }
+            if (result.isSuccess()) {
+                cache.put(url, result.getEntry());
+                lists.add(result.getEntry().getArticles());
+            } else {
+                synced = false;
+            }
+        }
+
+        if (query.isReaderMode()) {
+            CancellationSignal cancellationSignal = new CancellationSignal();
+            mCancellationSignal = cancellationSignal;
+            if (mStopped) {
+                return false;
+            }
+
+            try {
+                synced &= ArticleBodyPrefetcher.prefetchNow(this, query,
+                        ArticleMerger.merge(lists, query.getOrder()), cancellationSignal);
+            } catch (OperationCanceledException e) {
+                return false;
+            }
+        }
+        mCancellationSignal = null;
+        return synced;
+    }
+}
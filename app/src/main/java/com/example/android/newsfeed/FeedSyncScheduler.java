@@ -0,0 +1,71 @@
+package com.example.android.newsfeed;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FeedSyncScheduler} schedules the periodic {@link FeedSyncJobService}, or cancels
+ * it.  It is kept apart from the service, since the service extends a class added in
+ * Lollipop and merely calling into it fails to load the class on older releases.
+ */
+final class FeedSyncScheduler {
+
+    private static final int FEED_SYNC_JOB_ID = 1;
+
+    /** How often the feed is synced */
+    private static final long SYNC_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** Delay before the first retry of a failed sync, doubled on every further failure */
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Create a private constructor because no one should ever create a
+     * {@link FeedSyncScheduler} object.  This class is only meant to hold static methods.
+     */
+    private FeedSyncScheduler() {
+    }
+
+    /**
+     * Schedules the periodic sync, or cancels it.  Background sync needs the job scheduler,
+     * so callers check for Lollipop first.
+     *
+     * @param context is used to reach the job scheduler
+     * @param enabled is whether the feed should be synced in the background
+     */
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    static void schedule(Context context, boolean enabled) {
+        JobScheduler jobScheduler = (JobScheduler)
+                context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null) {
+            return;
+        }
+
+        if (!enabled) {
+            jobScheduler.cancel(FEED_SYNC_JOB_ID);
+            return;
+        }
+
+        // Scheduling again would restart the interval, so leave a pending sync be
+        for (JobInfo pendingJob : jobScheduler.getAllPendingJobs()) {
+            if (pendingJob.getId() == FEED_SYNC_JOB_ID) {
+                return;
+            }
+        }
+
+        JobInfo job = new JobInfo.Builder(FEED_SYNC_JOB_ID,
+                new ComponentName(context, FeedSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setPeriodic(SYNC_INTERVAL_MILLIS)
+                .setBackoffCriteria(INITIAL_BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+        jobScheduler.schedule(job);
+    }
+}
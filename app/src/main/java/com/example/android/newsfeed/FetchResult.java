@@ -0,0 +1,91 @@
+package com.example.android.newsfeed;
+
+/**
+ * {@link FetchResult} is the outcome of fetching the articles for a request URL: either
+ * the fetched cache entry, or why there is none.
+ */
+final class FetchResult {
+
+    /**
+     * Why a fetch failed, or {@link #SUCCESS}.
+     */
+    enum Status {
+        /** The articles were fetched or revalidated */
+        SUCCESS,
+        /** The server could not be reached, or the response was cut short */
+        NETWORK_ERROR,
+        /** The server answered with an error other than rate limiting */
+        HTTP_ERROR,
+        /** The server asked for fewer requests (response code 429) */
+        RATE_LIMITED,
+        /** No request was made, because too many recent ones failed */
+        CIRCUIT_OPEN
+    }
+
+    /** Response code of a rate limited request */
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private final Status mStatus;
+    Status getStatus() {
+        return mStatus;
+    }
+
+    // The fetched entry, only set on success
+    private final ArticleCache.Entry mEntry;
+    ArticleCache.Entry getEntry() {
+        return mEntry;
+    }
+
+    // Response code of the failed request, or 0 if there was no response
+    private final int mResponseCode;
+    int getResponseCode() {
+        return mResponseCode;
+    }
+
+    // How long the server asked to wait before the next request, or 0 if it didn't say
+    private final long mRetryAfterMillis;
+    long getRetryAfterMillis() {
+        return mRetryAfterMillis;
+    }
+
+    private FetchResult(Status status, ArticleCache.Entry entry, int responseCode,
+                        long retryAfterMillis) {
+        mStatus = status;
+        mEntry = entry;
+        mResponseCode = responseCode;
+        mRetryAfterMillis = retryAfterMillis;
+    }
+
+    static FetchResult success(ArticleCache.Entry entry) {
+        return new FetchResult(Status.SUCCESS, entry, 0, 0);
+    }
+
+    static FetchResult failure(Status status) {
+        return new FetchResult(status, null, 0, 0);
+    }
+
+    /**
+     * Returns the failure for the given error response.
+     *
+     * @param retryAfterMillis is how long the server asked to wait, or 0
+     */
+    static FetchResult httpError(int responseCode, long retryAfterMillis) {
+        Status status = responseCode == HTTP_TOO_MANY_REQUESTS
+                ? Status.RATE_LIMITED : Status.HTTP_ERROR;
+        return new FetchResult(status, null, responseCode, retryAfterMillis);
+    }
+
+    boolean isSuccess() {
+        return mStatus == Status.SUCCESS;
+    }
+
+    /**
+     * Returns true if the same request may succeed if made again later: the network
+     * failed, the server is overloaded or failing, or it asked for fewer requests.
+     */
+    boolean isTransient() {
+        return mStatus == Status.NETWORK_ERROR
+                || mStatus == Status.RATE_LIMITED
+                || (mStatus == Status.HTTP_ERROR && mResponseCode >= 500);
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.android.newsfeed;
+
+import android.os.CancellationSignal;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link HttpClient} is the process-wide client every request of the app goes through.
+ * Connections are never torn down with {@link HttpURLConnection#disconnect()}; response
+ * bodies are drained and closed instead, which hands the socket back to the platform's
+ * keep-alive pool so that repeated refreshes skip the TCP and TLS handshakes.
+ */
+final class HttpClient {
+
+    /** Default time allowed to establish a connection */
+    static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 15000;
+
+    /** Default time allowed between two reads of a response */
+    static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+    /** Connections kept alive per host, enough for every request of a load made at once */
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    /** Most bytes read off an unconsumed response to make its connection reusable */
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    /**
+     * Tears down the connections of canceled requests.  Requests are usually canceled from
+     * the main thread, where closing a socket isn't allowed, and an abort shouldn't wait
+     * behind other work for a thread, so it gets one of its own, let go once idle.
+     */
+    private static final ExecutorService ABORT_EXECUTOR = newAbortExecutor();
+
+    private static HttpClient sInstance;
+
+    private volatile int mConnectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private volatile int mReadTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+
+    /**
+     * Returns the process-wide {@link HttpClient}.
+     */
+    static synchronized HttpClient getInstance() {
+        if (sInstance == null) {
+            // These are read by the platform when its connection pool is first used
+            System.setProperty("http.keepAlive", "true");
+            System.setProperty("http.maxConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+            sInstance = new HttpClient();
+        }
+        return sInstance;
+    }
+
+    private HttpClient() {
+    }
+
+    private static ExecutorService newAbortExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Sets the timeouts of the requests made from now on without timeouts of their own.
+     *
+     * @param connectTimeoutMillis is the time allowed to establish a connection
+     * @param readTimeoutMillis is the time allowed between two reads of a response
+     */
+    void setTimeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Makes a GET request asking for a gzip compressed response, with the timeouts set by
+     * {@link #setTimeouts}.
+     *
+     * @param url is the URL to request
+     * @param headers are additional request headers, may be null
+     * @param cancellationSignal aborts the request, wherever it is, when canceled.  May be
+     *                           null.  An aborted request throws an IOException.
+     * @return the response, which must be closed
+     */
+    Response get(URL url, Map<String, String> headers, CancellationSignal cancellationSignal)
+            throws IOException {
+        return get(url, headers, cancellationSignal, mConnectTimeoutMillis, mReadTimeoutMillis);
+    }
+
+    /**
+     * Makes a GET request asking for a gzip compressed response, with timeouts of its own.
+     * A request that timed out throws a {@link java.net.SocketTimeoutException}.
+     *
+     * @param connectTimeoutMillis is the time allowed to establish a connection
+     * @param readTimeoutMillis is the time allowed between two reads of a response
+     * @see #get(URL, Map, CancellationSignal)
+     */
+    Response get(URL url, Map<String, String> headers, CancellationSignal cancellationSignal,
+                 int connectTimeoutMillis, int readTimeoutMillis) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setRequestMethod("GET");
+        connection.setRequestProperty("Connection", "keep-alive");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+
+        if (cancellationSignal != null) {
+            // Tearing the connection down fails whatever connect, read or write is blocked
+            // on it, so the thread making the request is freed at once
+            cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    ABORT_EXECUTOR.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            connection.disconnect();
+                        }
+                    });
+                }
+            });
+        }
+
+        long start = LoadMetrics.begin(LoadMetrics.Stage.CONNECT);
+        try {
+            connection.connect();
+        } finally {
+            LoadMetrics.end(LoadMetrics.Stage.CONNECT, start);
+        }
+
+        start = LoadMetrics.begin(LoadMetrics.Stage.FIRST_BYTE);
+        int code;
+        try {
+            code = connection.getResponseCode();
+        } finally {
+            LoadMetrics.end(LoadMetrics.Stage.FIRST_BYTE, start);
+        }
+        return new Response(connection, code, cancellationSignal);
+    }
+
+    /**
+     * The response to a request.  Closing it releases the connection back to the pool.
+     */
+    static final class Response implements Closeable {
+
+        private final HttpURLConnection mConnection;
+        private final CancellationSignal mCancellationSignal;
+        private InputStream mBody;
+        private CountingInputStream mCountingBody;
+
+        private final int mCode;
+        int getCode() {
+            return mCode;
+        }
+
+        private Response(HttpURLConnection connection, int code,
+                         CancellationSignal cancellationSignal) {
+            mConnection = connection;
+            mCode = code;
+            mCancellationSignal = cancellationSignal;
+        }
+
+        String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        /**
+         * Returns the body of the response, decompressed if it was sent with gzip.
+         */
+        InputStream getBody() throws IOException {
+            if (mBody == null) {
+                InputStream body = mCode < HttpURLConnection.HTTP_BAD_REQUEST
+                        ? mConnection.getInputStream() : mConnection.getErrorStream();
+                if (body != null) {
+                    // Count what comes off the wire, before it is decompressed
+                    mCountingBody = new CountingInputStream(body);
+                    body = mCountingBody;
+                }
+                if (body != null && "gzip".equalsIgnoreCase(mConnection.getContentEncoding())) {
+                    // Since we asked for gzip ourselves it is not decompressed transparently
+                    body = new GZIPInputStream(body);
+                }
+                mBody = body;
+            }
+            return mBody;
+        }
+
+        /**
+         * Returns the number of bytes of the body read off the connection so far.
+         */
+        long getBytesRead() {
+            return mCountingBody != null ? mCountingBody.mCount : 0;
+        }
+
+        /**
+         * Reads what is left of the body, so the connection can be reused, and closes it.
+         */
+        @Override
+        public void close() throws IOException {
+            if (mCancellationSignal != null) {
+                // Once handed back to the pool the connection is no longer ours to abort
+                mCancellationSignal.setOnCancelListener(null);
+            }
+
+            InputStream body;
+            try {
+                body = getBody();
+            } catch (IOException e) {
+                // Nothing to drain, the connection is not reusable anyway
+                return;
+            }
+            if (body == null) {
+                return;
+            }
+            try {
+                byte[] buffer = new byte[4096];
+                int drained = 0;
+                int read;
+                while (drained < MAX_DRAIN_BYTES && (read = body.read(buffer)) != -1) {
+                    drained += read;
+                }
+            } finally {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read through it.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                mCount += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+    }
+}
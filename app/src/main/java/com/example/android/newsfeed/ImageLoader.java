@@ -0,0 +1,485 @@
+package com.example.android.newsfeed;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+
+/**
+ * {@link ImageLoader} shows the image at a URL in an {@link ImageView} without blocking the
+ * main thread.  Images are downloaded once into a size-bounded disk cache, decoded on a
+ * background thread at no more than the size of the view, and the decoded bitmaps kept in
+ * a memory cache.  A view bound to another image cancels the request for the previous one,
+ * and bitmaps no longer cached or shown are pooled to be decoded into again.
+ * <p>
+ * Every method must be called on the main thread.
+ */
+final class ImageLoader implements ComponentCallbacks2 {
+
+    private static final String LOG_TAG = ImageLoader.class.getName();
+
+    private static final String CACHE_DIRECTORY_NAME = "thumbnails";
+
+    /** Upper bound on the total size of the downloaded images */
+    private static final long MAX_DISK_BYTES = 10 * 1024 * 1024;
+
+    /** Share of the app's memory class the decoded bitmaps may take up */
+    private static final int MEMORY_CACHE_DIVISOR = 8;
+
+    /** Share of the memory cache size the pooled bitmaps may take up */
+    private static final int POOL_DIVISOR = 4;
+
+    /** Number of images downloaded and decoded at the same time */
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+
+    /**
+     * Timeouts of a download, shorter than those of a feed, so a slow image doesn't hold one
+     * of the few request slots for long
+     */
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int READ_TIMEOUT_MILLIS = 5000;
+
+    private static final ExecutorService EXECUTOR =
+            Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+
+    private static ImageLoader sInstance;
+
+    private final File mDirectory;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final BitmapPool mPool;
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    // Request in flight for each view.  Requests only hold their view weakly, so a view
+    // dropped with its activity is dropped from the map as well.
+    private final Map<ImageView, Request> mRequests = new WeakHashMap<>();
+
+    // Bitmap each view shows
+    private final Map<ImageView, Bitmap> mShown = new WeakHashMap<>();
+
+    // Bitmaps evicted from the memory cache while still shown, pooled once they no longer are
+    private final Set<Bitmap> mEvictedShown =
+            Collections.newSetFromMap(new WeakHashMap<Bitmap, Boolean>());
+
+    /**
+     * Returns the process-wide {@link ImageLoader}.
+     */
+    static synchronized ImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            Context applicationContext = context.getApplicationContext();
+            ActivityManager activityManager = (ActivityManager)
+                    applicationContext.getSystemService(Context.ACTIVITY_SERVICE);
+            int memoryCacheBytes = activityManager.getMemoryClass() * 1024 * 1024
+                    / MEMORY_CACHE_DIVISOR;
+            sInstance = new ImageLoader(new File(applicationContext.getCacheDir(),
+                    CACHE_DIRECTORY_NAME), memoryCacheBytes);
+            applicationContext.registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    private ImageLoader(File directory, int memoryCacheBytes) {
+        mDirectory = directory;
+        mPool = new BitmapPool(memoryCacheBytes / POOL_DIVISOR);
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheBytes) {
+            @Override
+            protected int sizeOf(String url, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String url, Bitmap oldBitmap,
+                                        Bitmap newBitmap) {
+                if (oldBitmap == newBitmap) {
+                    return;
+                }
+                if (mShown.containsValue(oldBitmap)) {
+                    mEvictedShown.add(oldBitmap);
+                } else {
+                    mPool.put(oldBitmap);
+                }
+            }
+        };
+    }
+
+    /**
+     * Shows the image at the given URL in the given view, cancelling the request for any
+     * image the view was bound to before.  The view is cleared until the image is ready.
+     *
+     * @param url is the URL of the image, or null to only clear the view
+     */
+    void load(String url, ImageView view) {
+        cancel(view);
+        if (url == null) {
+            show(view, null);
+            return;
+        }
+
+        Bitmap bitmap = mMemoryCache.get(url);
+        show(view, bitmap);
+        if (bitmap != null) {
+            return;
+        }
+
+        Request request = new Request(url, view);
+        mRequests.put(view, request);
+        request.mFuture = EXECUTOR.submit(request);
+    }
+
+    /**
+     * Cancels the request for the image of the given view, if any, and clears it, so a
+     * recycled view neither waits on nor holds on to the image of another row.
+     */
+    void clear(ImageView view) {
+        cancel(view);
+        show(view, null);
+    }
+
+    private void cancel(ImageView view) {
+        Request request = mRequests.remove(view);
+        if (request != null) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * Shows the given bitmap in the given view, pooling the bitmap it showed before if it
+     * is neither cached nor shown anywhere else any longer.
+     */
+    private void show(ImageView view, Bitmap bitmap) {
+        Bitmap previous = bitmap != null ? mShown.put(view, bitmap) : mShown.remove(view);
+        view.setImageBitmap(bitmap);
+        if (previous != null && previous != bitmap && mEvictedShown.contains(previous)
+                && !mShown.containsValue(previous)) {
+            mEvictedShown.remove(previous);
+            mPool.put(previous);
+        }
+    }
+
+    /**
+     * Called on the main thread once a request completes without being canceled.
+     *
+     * @param bitmap is the decoded bitmap, or null if the image couldn't be loaded
+     */
+    private void onLoaded(Request request, Bitmap bitmap) {
+        if (bitmap != null) {
+            mMemoryCache.put(request.mUrl, bitmap);
+        }
+        ImageView view = request.mView.get();
+        if (view != null && mRequests.get(view) == request) {
+            mRequests.remove(view);
+            if (bitmap != null) {
+                show(view, bitmap);
+            }
+        }
+    }
+
+    //region Memory
+
+    /**
+     * Releases half of the bitmaps when the app is in the background or running low on
+     * memory, and all of them when it is about to be killed or is critically low.  Bitmaps
+     * still shown are only released once they no longer are.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            mMemoryCache.evictAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            mMemoryCache.trimToSize(mMemoryCache.maxSize() / 2);
+        } else {
+            return;
+        }
+        mPool.clear();
+    }
+
+    @Override
+    public void onLowMemory() {
+        mMemoryCache.evictAll();
+        mPool.clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * Returns the number of images found decoded in memory.
+     */
+    int getHitCount() {
+        return mMemoryCache.hitCount();
+    }
+
+    /**
+     * Returns the number of images that had to be read from disk or downloaded.
+     */
+    int getMissCount() {
+        return mMemoryCache.missCount();
+    }
+
+    //endregion
+
+    //region Disk
+
+    /**
+     * Returns the image at the given URL decoded to about the given size, downloading it
+     * first if it isn't on disk yet.  Called on a background thread.
+     *
+     * @return the bitmap, or null if the image couldn't be downloaded or decoded
+     */
+    private Bitmap loadBitmap(String url, int width, int height,
+                              CancellationSignal cancellationSignal) {
+        File file = fileFor(url);
+        if (file.exists()) {
+            // Record the access so eviction removes the least recently used images first
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(System.currentTimeMillis());
+        } else if (!download(url, file, cancellationSignal)) {
+            return null;
+        }
+
+        cancellationSignal.throwIfCanceled();
+        Bitmap bitmap = decode(file, width, height);
+        if (bitmap == null) {
+            Log.e(LOG_TAG, "Unable to decode " + url);
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+        return bitmap;
+    }
+
+    /**
+     * Downloads the image at the given URL into the given file.
+     *
+     * @return true if the image was downloaded
+     */
+    private boolean download(String url, File file, CancellationSignal cancellationSignal) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(LOG_TAG, "Unable to create the thumbnail cache directory");
+            return false;
+        }
+
+        File tempFile = null;
+        HttpClient.Response response = null;
+        try {
+            response = HttpClient.getInstance().get(new URL(url),
+                    Collections.<String, String>emptyMap(), cancellationSignal,
+                    CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS);
+            if (response.getCode() != HTTP_OK) {
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
+                return false;
+            }
+
+            // Write to a file of its own, so two requests for the same image don't mix
+            tempFile = File.createTempFile(file.getName(), null, mDirectory);
+            try (InputStream in = response.getBody();
+                 OutputStream out = new FileOutputStream(tempFile)) {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, count);
+                }
+            }
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Unable to replace " + file);
+            }
+        } catch (IOException e) {
+            // An aborted request fails with an IOException, report it as canceled instead
+            cancellationSignal.throwIfCanceled();
+            Log.e(LOG_TAG, "Problem downloading " + url, e);
+            return false;
+        } finally {
+            if (tempFile != null) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+            if (response != null) {
+                try {
+                    response.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the response.", e);
+                }
+            }
+        }
+
+        trimToSize();
+        return true;
+    }
+
+    /**
+     * Decodes the image in the given file, downsampled by the largest power of two that
+     * keeps it at least as large as the given size, into a pooled bitmap if there is one.
+     */
+    private Bitmap decode(File file, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width
+                && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        // Thumbnails are photos without transparency, so half the memory will do
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        options.inMutable = true;
+        options.inBitmap = mPool.get(
+                (options.outWidth + sampleSize - 1) / sampleSize,
+                (options.outHeight + sampleSize - 1) / sampleSize,
+                options.inPreferredConfig);
+        try {
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        } catch (IllegalArgumentException e) {
+            // The pooled bitmap didn't fit after all
+            options.inBitmap = null;
+            return BitmapFactory.decodeFile(file.getPath(), options);
+        }
+    }
+
+    /**
+     * Evicts the least recently used images until the cache fits in {@link #MAX_DISK_BYTES}.
+     */
+    private synchronized void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= MAX_DISK_BYTES) {
+            return;
+        }
+
+        List<File> byLastUse = new ArrayList<>(Arrays.asList(files));
+        Collections.sort(byLastUse, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (File file : byLastUse) {
+            if (size <= MAX_DISK_BYTES) {
+                break;
+            }
+            size -= file.length();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    /**
+     * Returns the file the image at the given URL is stored in.  The URL is hashed so that
+     * it is safe to use as a file name.
+     */
+    private File fileFor(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes(Charset.forName("UTF-8")));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(mDirectory, name.toString());
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android platform is required to provide SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //endregion
+
+    /**
+     * Loads the image of a view on a background thread and hands it to the main thread.
+     */
+    private final class Request implements Runnable {
+
+        private final String mUrl;
+        private final WeakReference<ImageView> mView;
+        private final int mWidth;
+        private final int mHeight;
+        private final CancellationSignal mCancellationSignal = new CancellationSignal();
+        private Future<?> mFuture;
+
+        Request(String url, ImageView view) {
+            mUrl = url;
+            mView = new WeakReference<>(view);
+
+            // The view may not be laid out yet, but its size is fixed by the layout.
+            // Without a size to go by the image is decoded at full size.
+            ViewGroup.LayoutParams params = view.getLayoutParams();
+            mWidth = params != null && params.width > 0 ? params.width : Integer.MAX_VALUE;
+            mHeight = params != null && params.height > 0 ? params.height : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = null;
+            boolean canceled = false;
+            try {
+                bitmap = loadBitmap(mUrl, mWidth, mHeight, mCancellationSignal);
+            } catch (OperationCanceledException e) {
+                // Canceling already removed the request
+                canceled = true;
+            } finally {
+                // Failures are handed over too, so the request is removed however it ends
+                if (!canceled) {
+                    final Bitmap loaded = bitmap;
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            onLoaded(Request.this, loaded);
+                        }
+                    });
+                }
+            }
+        }
+
+        void cancel() {
+            mCancellationSignal.cancel();
+            mFuture.cancel(false);
+        }
+    }
+}
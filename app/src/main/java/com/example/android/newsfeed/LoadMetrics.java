@@ -0,0 +1,230 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.os.Trace;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LoadMetrics} records how long each stage of loading articles takes, along with
+ * the bytes and articles each stage handled, so a slow load can be traced to the stage
+ * responsible.  Every stage is also a trace section, named after the stage, so it shows
+ * up in systrace and the Android Studio profiler.
+ * <p>
+ * Timings are kept in a histogram per stage and reported with {@link #dump}, both from
+ * {@code adb shell dumpsys activity} and in the app.
+ */
+final class LoadMetrics {
+
+    /**
+     * A stage of loading articles.
+     */
+    enum Stage {
+        /** Establishing the connection, including the TLS handshake */
+        CONNECT("connect"),
+        /** Waiting for the status line once connected */
+        FIRST_BYTE("first byte"),
+        /** Reading the response body and parsing the articles off it */
+        READ_PARSE("read+parse"),
+        /** Reading an entry from the disk cache */
+        CACHE_READ("cache read"),
+        /** Writing an entry to the disk cache */
+        CACHE_WRITE("cache write"),
+        /** A whole load of {@link ArticleFeed}, from the cache or the network */
+        LOAD("load"),
+        /** Binding an article to a row */
+        BIND("bind"),
+        /** From the process starting, to show the feed, to its first articles shown */
+        COLD_START("cold start"),
+        /** From the feed being created in a running process to its first articles shown */
+        WARM_START("warm start");
+
+        private final String mName;
+        private final String mSectionName;
+
+        Stage(String name) {
+            mName = name;
+            mSectionName = "NewsFeed:" + name;
+        }
+    }
+
+    /** Upper bounds of the histogram buckets in microseconds, the last bucket is unbounded */
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+            100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000,
+            100000, 250000, 500000, 1000000, 2500000, 5000000
+    };
+
+    private static final Stats[] STATS = new Stats[Stage.values().length];
+
+    static {
+        for (int i = 0; i < STATS.length; i++) {
+            STATS[i] = new Stats();
+        }
+    }
+
+    /**
+     * Create a private constructor because no one should ever create a {@link LoadMetrics}
+     * object.  This class is only meant to hold static methods.
+     */
+    private LoadMetrics() {
+    }
+
+    /**
+     * Starts timing the given stage on the calling thread, which must end it with
+     * {@link #end}.
+     *
+     * @return the start time to pass to {@link #end}
+     */
+    static long begin(Stage stage) {
+        Trace.beginSection(stage.mSectionName);
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends the given stage, started on the calling thread by {@link #begin}.
+     */
+    static void end(Stage stage, long startNanos) {
+        end(stage, startNanos, 0, 0);
+    }
+
+    /**
+     * Ends the given stage, started on the calling thread by {@link #begin}, recording how
+     * much it handled.
+     *
+     * @param bytes are the bytes read or written by the stage
+     * @param items are the articles handled by the stage
+     */
+    static void end(Stage stage, long startNanos, long bytes, int items) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        Trace.endSection();
+        STATS[stage.ordinal()].record(elapsedNanos, bytes, items);
+    }
+
+    /**
+     * Records the given stage, timed from the given {@link System#nanoTime} on, for a stage
+     * handed from thread to thread, which can't be a trace section.
+     *
+     * @param items are the articles handled by the stage
+     */
+    static void record(Stage stage, long startNanos, int items) {
+        STATS[stage.ordinal()].record(System.nanoTime() - startNanos, 0, items);
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    static void reset() {
+        for (Stats stats : STATS) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Returns the report written by {@link #dump}.
+     */
+    static String getReport(Context context) {
+        StringWriter report = new StringWriter();
+        PrintWriter writer = new PrintWriter(report);
+        dump(context, writer);
+        writer.flush();
+        return report.toString();
+    }
+
+    /**
+     * Writes the count, latency percentiles and totals of every stage, followed by the
+     * hit rates of the caches.
+     *
+     * @param context is used to reach the caches
+     */
+    static void dump(Context context, PrintWriter writer) {
+        writer.println("Load metrics (latencies in ms):");
+        for (Stage stage : Stage.values()) {
+            STATS[stage.ordinal()].dump(writer, stage.mName);
+        }
+
+        RequestCoalescer coalescer = RequestCoalescer.getInstance();
+        writer.println(String.format(Locale.US, "  coalesced: %d of %d fetches",
+                coalescer.getCollapsedCount(), coalescer.getRequestCount()));
+
+        ArticleMemoryCache memoryCache = ArticleMemoryCache.getInstance();
+        writer.println(String.format(Locale.US,
+                "  memory cache: %d hits, %d misses, %d evictions, %d articles held",
+                memoryCache.getHitCount(), memoryCache.getMissCount(),
+                memoryCache.getEvictionCount(), memoryCache.getSize()));
+
+        ImageLoader imageLoader = ImageLoader.getInstance(context);
+        writer.println(String.format(Locale.US, "  thumbnails: %d hits, %d misses",
+                imageLoader.getHitCount(), imageLoader.getMissCount()));
+
+        ArticleBodyStore.getInstance(context).dump(writer);
+    }
+
+    /**
+     * The measurements of a single stage.
+     */
+    private static final class Stats {
+
+        private final long[] mBuckets = new long[BUCKET_BOUNDS_MICROS.length + 1];
+        private long mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+        private long mBytes;
+        private long mItems;
+
+        synchronized void record(long elapsedNanos, long bytes, int items) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MICROS.length
+                    && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+                bucket++;
+            }
+            mBuckets[bucket]++;
+            mCount++;
+            mTotalNanos += elapsedNanos;
+            mMaxNanos = Math.max(mMaxNanos, elapsedNanos);
+            mBytes += bytes;
+            mItems += items;
+        }
+
+        synchronized void reset() {
+            for (int i = 0; i < mBuckets.length; i++) {
+                mBuckets[i] = 0;
+            }
+            mCount = 0;
+            mTotalNanos = 0;
+            mMaxNanos = 0;
+            mBytes = 0;
+            mItems = 0;
+        }
+
+        synchronized void dump(PrintWriter writer, String name) {
+            if (mCount == 0) {
+                writer.println(String.format(Locale.US, "  %-11s n=0", name));
+                return;
+            }
+            writer.println(String.format(Locale.US,
+                    "  %-11s n=%d mean=%.2f p50<=%s p90<=%s p99<=%s max=%.2f bytes=%d items=%d",
+                    name, mCount, mTotalNanos / 1e6 / mCount,
+                    percentile(0.5), percentile(0.9), percentile(0.99),
+                    mMaxNanos / 1e6, mBytes, mItems));
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given percentile, in ms.
+         */
+        private String percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * mCount);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    return String.format(Locale.US, "%.2f", BUCKET_BOUNDS_MICROS[i] / 1000.0);
+                }
+            }
+            return "inf";
+        }
+    }
+}
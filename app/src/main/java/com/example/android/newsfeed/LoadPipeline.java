@@ -0,0 +1,169 @@
+package com.example.android.newsfeed;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link LoadPipeline} runs the stages of loading articles: blocking I/O (the network and
+ * the disk) on one pool of threads and parsing and merging on another, sized to the CPU,
+ * so a slow connection never holds up the parsing of a response that already arrived.
+ * <p>
+ * Work waiting for a thread is taken in order of {@link Priority}, then in the order it
+ * was submitted, so the feed on screen is never queued behind pages being prefetched.
+ * Work submitted from a pipeline thread without a priority of its own inherits the
+ * priority of the work running on that thread.
+ */
+final class LoadPipeline {
+
+    /**
+     * How urgently work is needed, most urgent first.
+     */
+    enum Priority {
+        /** Articles about to be shown */
+        VISIBLE,
+        /** Articles fetched ahead of being scrolled to */
+        PREFETCH,
+        /** Work nobody is waiting on */
+        BACKGROUND
+    }
+
+    /** Upper bound on the requests and file reads made at the same time */
+    private static final int IO_THREADS = 4;
+
+    /** Threads parsing and merging, leaving a core to the main thread */
+    private static final int CPU_THREADS =
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private static final LoadPipeline sInstance = new LoadPipeline();
+
+    // Priority of the work running on the current thread, if it is a pipeline thread
+    private static final ThreadLocal<Priority> sCurrentPriority = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor mIoExecutor = newExecutor(IO_THREADS);
+    private final ThreadPoolExecutor mCpuExecutor = newExecutor(CPU_THREADS);
+
+    // Breaks ties between work of the same priority, in submission order
+    private final AtomicLong mNextSequence = new AtomicLong();
+
+    /**
+     * Returns the process-wide {@link LoadPipeline}.
+     */
+    static LoadPipeline getInstance() {
+        return sInstance;
+    }
+
+    private LoadPipeline() {
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>());
+    }
+
+    /**
+     * Runs the given blocking I/O work on an I/O thread.
+     *
+     * @return the future of the work, cancelling it before it starts skips it
+     */
+    Future<?> executeIo(Priority priority, Runnable runnable) {
+        Task<Void> task = new Task<>(priority, runnable);
+        mIoExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Runs the given CPU-bound work on a CPU thread, with the priority of the work running
+     * on the calling thread.
+     */
+    <T> Future<T> submitCpu(Callable<T> callable) {
+        Task<T> task = new Task<>(getCurrentPriority(), callable);
+        mCpuExecutor.execute(task);
+        return task;
+    }
+
+    /**
+     * Moves work run by {@link #executeIo} to the given priority, if it is still waiting
+     * for a thread.  Work already running keeps the priority it started with.
+     */
+    void setIoPriority(Future<?> future, Priority priority) {
+        Task<?> task = (Task<?>) future;
+        if (task.mPriority != priority && mIoExecutor.remove(task)) {
+            task.mPriority = priority;
+            mIoExecutor.execute(task);
+        }
+    }
+
+    /**
+     * Returns the given work wrapped to run with the priority of the work running on the
+     * calling thread, for work handed to a thread outside the pipeline that submits work
+     * to it in turn.
+     */
+    static Runnable inheritPriority(final Runnable runnable) {
+        final Priority priority = sCurrentPriority.get();
+        return new Runnable() {
+            @Override
+            public void run() {
+                Priority previous = sCurrentPriority.get();
+                sCurrentPriority.set(priority);
+                try {
+                    runnable.run();
+                } finally {
+                    sCurrentPriority.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the priority of the work running on the calling thread, or
+     * {@link Priority#BACKGROUND} if it isn't a pipeline thread.
+     */
+    static Priority getCurrentPriority() {
+        Priority priority = sCurrentPriority.get();
+        return priority != null ? priority : Priority.BACKGROUND;
+    }
+
+    /**
+     * Work queued in a pipeline executor, ordered by priority and then submission order.
+     */
+    private final class Task<T> extends FutureTask<T> implements Comparable<Task<?>> {
+
+        // Only changed while the task is out of the queue
+        private volatile Priority mPriority;
+        private final long mSequence = mNextSequence.getAndIncrement();
+
+        Task(Priority priority, Callable<T> callable) {
+            super(callable);
+            mPriority = priority;
+        }
+
+        Task(Priority priority, Runnable runnable) {
+            super(runnable, null);
+            mPriority = priority;
+        }
+
+        @Override
+        public void run() {
+            Priority previous = sCurrentPriority.get();
+            sCurrentPriority.set(mPriority);
+            try {
+                super.run();
+            } finally {
+                sCurrentPriority.set(previous);
+            }
+        }
+
+        @Override
+        public int compareTo(Task<?> other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.compareTo(other.mPriority);
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence > other.mSequence ? 1 : 0);
+        }
+    }
+}
@@ -1,35 +1,48 @@
 package com.example.android.newsfeed;
 
-import android.app.LoaderManager;
+import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
-import android.content.Loader;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
 import android.preference.PreferenceManager;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.TextView;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
-public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<Article>>{
+public class MainActivity extends AppCompatActivity implements ArticleFeed.Listener {
 
     private static final String LOG_TAG = MainActivity.class.getName();
-    private static final int ARTICLE_LOADER_ID = 1;
 
-    /** URL for news article data from the Guardian WebAPI */
-    private static final String GUARDIAN_REQUEST_URL =
-            "http://content.guardianapis.com/search";
+    /** Page of the feed of a load that isn't paged, which loads like the first page */
+    private static final int FIRST_PAGE = 1;
+
+    /** How often the visible rows are rebound to keep relative publish times current */
+    private static final long PUBLISH_TIME_REFRESH_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** Most articles shown for a search */
+    private static final int SEARCH_RESULTS_LIMIT = 100;
 
     /** Adapter for the list of {@link Article} */
     private ArticleAdapter mAdapter;
@@ -37,173 +50,490 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     /** TextView that is displayed when the list is empty */
     private TextView mEmptyStateTextView;
 
+    /** Why the last load could not fetch any articles, or null */
+    private FetchResult.Status mLoadError;
+
+    /** Query the feeds were created for */
+    private ArticleQuery mQuery;
+
+    /** Whether the preferences changed since {@link #mQuery} was read from them */
+    private boolean mPreferencesChanged;
+
     /**
-     * Instantiate and return a new Loader for the given ID.  LoaderManager has
-     * determined that the loader with our specified ID isn't running, so we
-     * should create a new one
-     *
-     * @param id   The ID whose loader is to be created.
-     * @param args Any arguments supplied by the caller.
-     * @return Return a new Loader instance that is ready to start loading.
+     * Notes that the preferences changed, so the query is only read again when they did.
+     * Held here, as the preferences only hold on to their listeners weakly.
      */
-    @Override
-    public Loader<List<Article>> onCreateLoader(int id, Bundle args) {
-        Log.e(LOG_TAG, "onCreateLoader");
-
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-
-        //NOTE TO REVIEWER: I know this is probably something we wouldn't want to do in a "play store"
-        //app, but has been added as a convenience to not having to deal with remove my api key before
-        // publishing the source.  Suggestions?
-        String apiKey = sharedPrefs.getString(
-                getString(R.string.settings_api_key_key),
-                getString(R.string.settings_api_key_default));
-
-        String numberResults = sharedPrefs.getString(
-                getString(R.string.settings_number_results_key),
-                getString(R.string.settings_number_results_default));
-
-        String sport = sharedPrefs.getString(
-                getString(R.string.settings_sport_key),
-                getString(R.string.settings_sport_default));
-
-        Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        uriBuilder.appendQueryParameter("q", sport);
-        uriBuilder.appendQueryParameter("production-office", "us");
-        uriBuilder.appendQueryParameter("show-tags", "contributor");
-        uriBuilder.appendQueryParameter("order-by", "relevance");
-        uriBuilder.appendQueryParameter("page-size", numberResults);
-        uriBuilder.appendQueryParameter("api-key", apiKey);
-
-        //noinspection unchecked
-        return new ArticleLoader(this, uriBuilder.toString());
-    }
-
-    /**
-     * Called when a previously created loader has finished its load.  Note
-     * that normally an application is <em>not</em> allowed to commit fragment
-     * transactions while in this call, since it can happen after an
-     * activity's state is saved.  See {link FragmentManager#beginTransaction()
-     * FragmentManager.openTransaction()} for further discussion on this.
-     * <p>
-     * <p>This function is guaranteed to be called prior to the release of
-     * the last data that was supplied for this Loader.  At this point
-     * you should remove all use of the old data (since it will be released
-     * soon), but should not do your own release of the data since its Loader
-     * owns it and will take care of that.  The Loader will take care of
-     * management of its data so you don't have to.  In particular:
-     *
-     * Use the article data to update our UI - by updating the data set in the adapter.
+    private final SharedPreferences.OnSharedPreferenceChangeListener mPreferenceListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sharedPrefs,
+                                                      String key) {
+                    mPreferencesChanged = true;
+                }
+            };
+
+    /** Whether articles are loaded a page at a time as the list is scrolled */
+    private boolean mPagedLoading;
+
+    /** Pages of articles shown when loading in pages, one feed is kept per page */
+    private PageWindow mPageWindow;
+
+    /** Feeds loading the articles, by page */
+    private Map<Integer, ArticleFeed> mFeeds;
+
+    /** RecyclerView showing the articles */
+    private RecyclerView mArticleRecyclerView;
+
+    /** Articles last loaded, shown again once a search ends */
+    private List<Article> mLoadedArticles;
+
+    /** Text searched for, or null when the loaded articles are shown */
+    private String mSearchQuery;
+
+    /** Whether the activity has been launched before in this process */
+    private static boolean sLaunched;
+
+    /** Stage timing the launch until its first articles are shown, or null once timed */
+    private LoadMetrics.Stage mLaunchStage;
+
+    /** When the launch started, as a {@link System#nanoTime} */
+    private long mLaunchStartNanos;
+
+    private final Handler mHandler = new Handler();
+
+    /** Rebinds the publish times of the rows shown */
+    private final Runnable mRefreshPublishTimes = new Runnable() {
+        @Override
+        public void run() {
+            mAdapter.refreshPublishTimes();
+            mHandler.postDelayed(this, PUBLISH_TIME_REFRESH_MILLIS);
+        }
+    };
+
+    /**
+     * Returns a new feed for the given page of the query, the first page loading every
+     * article of a query that isn't paged.  It is kept until destroyed, but not started.
+     */
+    private ArticleFeed newFeed(int page, LoadPipeline.Priority priority) {
+        ArticleFeed feed = new ArticleFeed(this, mQuery.getRequestUrls(page), mQuery.getOrder(),
+                priority);
+        mFeeds.put(page, feed);
+        return feed;
+    }
+
+    /**
+     * Uses the articles delivered by a feed to update our UI - by updating the data set in
+     * the adapter.
      *
-     * @param loader The Loader that has finished.
-     * @param articles   The data generated by the Loader.
+     * @param feed is the feed that loaded the articles
+     * @param articles are the articles loaded, or parsed so far
      */
     @Override
-    public void onLoadFinished(Loader<List<Article>> loader, List<Article> articles) {
-        Log.i(LOG_TAG, "onLoadFinished");
+    public void onArticlesLoaded(ArticleFeed feed, List<Article> articles) {
+        Log.i(LOG_TAG, "onArticlesLoaded");
 
         // Hide loading indicator because the data has been loaded
         View loadingIndicator = findViewById(R.id.loading_indicator);
         loadingIndicator.setVisibility(View.GONE);
+        mLoadError = feed.getLastError();
 
-        // Set empty state text to display "No articles found."
-        mEmptyStateTextView.setText(R.string.no_articles_found);
+        if (mLaunchStage != null) {
+            if (articles != null && !articles.isEmpty()) {
+                LoadMetrics.record(mLaunchStage, mLaunchStartNanos, articles.size());
+            }
+            mLaunchStage = null;
+            // Lets the time to the first articles be read off the "Fully drawn" log line
+            reportFullyDrawn();
+        }
 
-        // Clear the adapter of previous article data
-        mAdapter.clear();
+        // Have the text of the top articles ready to read, even once offline.  Only once
+        // the load is complete, as the top articles parsed so far may not stay on top.
+        if (!feed.isLoading()) {
+            prefetchBodies(articles);
+        }
 
-        // If there is a valid list of {@link Article}s, then add them to the adapter's
-        // data set. This will trigger the ListView to update.
-        if (articles != null && !articles.isEmpty()) {
-            mAdapter.addAll(articles);
+        if (mPagedLoading) {
+            showPage(pageForFeed(feed), articles);
+            return;
         }
+
+        // Hand the new list of {@link Article}s to the adapter. It is compared with the
+        // current one in the background and only the rows that changed are updated.
+        showArticles(articles);
+    }
+
+    /**
+     * Fetches the text of the top articles of the given list in the background, if reader
+     * mode is on and there is a network connection to fetch it over.
+     */
+    private void prefetchBodies(List<Article> articles) {
+        if (mQuery.isReaderMode() && articles != null && isConnected()) {
+            ArticleBodyPrefetcher.prefetch(this, mQuery, articles);
+        }
+    }
+
+    /**
+     * Returns true if there is a network connection right now.
+     */
+    private boolean isConnected() {
+        ConnectivityManager connectivityManager = (ConnectivityManager)
+                getSystemService(CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = Objects.requireNonNull(connectivityManager).getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
     }
 
     /**
-     * Called when a previously created loader is being reset, and thus
-     * making its data unavailable.  The application should at this point
-     * remove any references it has to the Loader's data.
+     * Shows the given loaded articles, unless search results are shown instead.
+     */
+    private void showArticles(List<Article> articles) {
+        mLoadedArticles = articles;
+
+        // The loaded articles were just indexed, so a search may now find more of them
+        showSearchResults(mSearchQuery);
+    }
+
+    /**
+     * Shows the given articles, or the empty state text if there are none.
+     */
+    private void submitArticles(List<Article> articles) {
+        boolean isEmpty = articles == null || articles.isEmpty();
+        mEmptyStateTextView.setVisibility(isEmpty ? View.VISIBLE : View.GONE);
+        mAdapter.submitList(isEmpty ? null : articles);
+    }
+
+    //region Paged Loading
+
+    /**
+     * Returns the page the given feed loads.
+     */
+    private int pageForFeed(ArticleFeed feed) {
+        for (Map.Entry<Integer, ArticleFeed> entry : mFeeds.entrySet()) {
+            if (entry.getValue() == feed) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalArgumentException("Feed of no page");
+    }
+
+    /**
+     * Adds a loaded page to the window and updates the list.
      *
-     * @param loader The Loader that is being reset.
+     * @param page is the page number, starting at 1
+     * @param articles are the articles of the page, or null if it failed to load
      */
+    private void showPage(int page, List<Article> articles) {
+        if (articles == null) {
+            return;
+        }
+
+        int oldFirstPage = mPageWindow.getFirstPage();
+        int oldLastPage = mPageWindow.getLastPage();
+        mPageWindow.put(page, articles);
+
+        // The page is shown now, so whatever its feed loads next is no longer ahead of time
+        ArticleFeed shownFeed = mFeeds.get(page);
+        if (shownFeed != null && mPageWindow.contains(page)) {
+            shownFeed.setPriority(LoadPipeline.Priority.VISIBLE);
+        }
+
+        // Pages that fell out of the window no longer need their feeds
+        for (int p = Math.min(oldFirstPage, page); p <= Math.max(oldLastPage, page); p++) {
+            if (p > 0 && !mPageWindow.contains(p)) {
+                ArticleFeed feed = mFeeds.remove(p);
+                if (feed != null) {
+                    feed.destroy();
+                }
+            }
+        }
+
+        // Rows of pages added or evicted in front of the visible ones are inserted or
+        // removed around them, so the list keeps its scroll position
+        showArticles(mPageWindow.getArticles());
+    }
+
+    /**
+     * Starts loading the page adjacent to the visible rows once they near either end of
+     * the window.
+     */
+    private void prefetchPage(int firstVisible, int visibleCount) {
+        if (mSearchQuery != null) {
+            // The rows are search results, not the pages of the window
+            return;
+        }
+        int page = mPageWindow.pageToPrefetch(firstVisible, visibleCount);
+        if (page <= 0) {
+            return;
+        }
+        ArticleFeed feed = mFeeds.get(page);
+        if (feed == null) {
+            // Not shown yet, so the visible feeds come first
+            newFeed(page, LoadPipeline.Priority.PREFETCH).start(this);
+        } else if (firstVisible == 0 || firstVisible + visibleCount >= mAdapter.getItemCount()) {
+            // Scrolled to the end of the rows with the page still loading, so it is what
+            // the screen is waiting on
+            feed.setPriority(LoadPipeline.Priority.VISIBLE);
+        }
+    }
+
     @Override
-    public void onLoaderReset(Loader<List<Article>> loader) {
-        Log.i(LOG_TAG, "onLoaderReset");
+    public Object onRetainCustomNonConfigurationInstance() {
+        // Keep the pages across configuration changes, along with their feeds
+        return new RetainedState(mPageWindow, mFeeds);
+    }
+
+    /**
+     * State kept across configuration changes.
+     */
+    private static final class RetainedState {
+
+        final PageWindow mPageWindow;
+        final Map<Integer, ArticleFeed> mFeeds;
 
-        // Loader reset, so we can clear out our existing data.
-        mAdapter.clear();
+        RetainedState(PageWindow pageWindow, Map<Integer, ArticleFeed> feeds) {
+            mPageWindow = pageWindow;
+            mFeeds = feeds;
+        }
     }
 
+    //endregion
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+
+        // The preferences were loaded off the main thread as the process started, so
+        // this only waits for whatever is left of that
+        mQuery = ArticleQuery.fromPreferences(this);
+        mPagedLoading = mQuery.isPaged();
+        PreferenceManager.getDefaultSharedPreferences(this)
+                .registerOnSharedPreferenceChangeListener(mPreferenceListener);
+        RetainedState retained = (RetainedState) getLastCustomNonConfigurationInstance();
+        if (retained != null) {
+            mPageWindow = retained.mPageWindow;
+            mFeeds = retained.mFeeds;
+        } else {
+            mFeeds = new HashMap<>();
+
+            // Time the launch to its first articles, from the process starting if the
+            // process was started for this launch, and from now otherwise
+            long now = System.nanoTime();
+            boolean cold = !sLaunched && NewsFeedApplication.wasStartedFor(now);
+            mLaunchStage = cold ? LoadMetrics.Stage.COLD_START : LoadMetrics.Stage.WARM_START;
+            mLaunchStartNanos = cold ? NewsFeedApplication.getStartNanos() : now;
+            sLaunched = true;
+        }
+        if (mPagedLoading && mPageWindow == null) {
+            mPageWindow = new PageWindow(mQuery.getNumberResults());
+        }
+
+        // Create the feed of the first page, unless the feeds were kept across a
+        // configuration change, and have it read the cache and fetch the articles while
+        // the views are inflated.  Without an internet connection the feed still delivers
+        // whatever articles it has cached on disk.
+        if (mFeeds.isEmpty()) {
+            newFeed(FIRST_PAGE, LoadPipeline.Priority.VISIBLE).preload();
+        }
+
         setContentView(R.layout.activity_main);
 
-        // Find a reference to the {@link ListView} in the layout
-        ListView articleListView = findViewById(R.id.list);
+        // Find a reference to the {@link RecyclerView} in the layout
+        mArticleRecyclerView = findViewById(R.id.list);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        mArticleRecyclerView.setLayoutManager(layoutManager);
 
         mEmptyStateTextView = findViewById(R.id.empty_view);
-        articleListView.setEmptyView(mEmptyStateTextView);
 
-        // Create a new adapter that takes an empty list of {@link Article} as input
-        mAdapter = new ArticleAdapter(this, new ArrayList<Article>());
+        // Create a new adapter with an empty list of {@link Article}. Clicking a row sends an
+        // intent to a web browser to open a website with more information about the article,
+        // or shows it in the app if reader mode has its text.
+        mAdapter = new ArticleAdapter(this, new ArticleAdapter.OnArticleClickListener() {
+            @Override
+            public void onArticleClick(Article article) {
+                if (mQuery.isReaderMode() && ArticleBodyStore.getInstance(MainActivity.this)
+                        .containsForOpen(article.getUrl())) {
+                    startActivity(ReaderActivity.newIntent(MainActivity.this, article));
+                    return;
+                }
+
+                // Convert the String URL into a URI object (to pass into the Intent constructor)
+                Uri articleUri = Uri.parse(article.getUrl());
 
-        // Set the adapter on the {@link ListView}
+                // Create a new intent to view the article URI
+                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, articleUri);
+
+                // Send the intent to launch a new activity
+                startActivity(websiteIntent);
+            }
+        });
+
+        // Set the adapter on the {@link RecyclerView}
         // so the list can be populated in the user interface
-        articleListView.setAdapter(mAdapter);
+        mArticleRecyclerView.setAdapter(mAdapter);
 
-        // Check network connection
-        ConnectivityManager connectivityManager = (ConnectivityManager)
-                getSystemService(CONNECTIVITY_SERVICE);
+        if (mPagedLoading) {
+            // Show the pages kept across a configuration change
+            if (mPageWindow.getFirstPage() > 0) {
+                showArticles(mPageWindow.getArticles());
+            }
 
-        NetworkInfo networkInfo = Objects.requireNonNull(connectivityManager).getActiveNetworkInfo();
-        if (networkInfo == null || !networkInfo.isConnected()) {
+            // Fetch further pages as the list is scrolled toward either end
+            mArticleRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+                @Override
+                public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                    prefetchPage(layoutManager.findFirstVisibleItemPosition(),
+                            layoutManager.getChildCount());
+                }
+            });
+        }
 
-            //NO Internet connection
+        // Make sure the feed is synced in the background, if the user wants it to be.  That
+        // isn't needed for the first screen, so leave the main thread to it.  Background
+        // sync needs the job scheduler, added in Lollipop.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            final Context context = getApplicationContext();
+            LoadPipeline.getInstance().executeIo(LoadPipeline.Priority.BACKGROUND,
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            SharedPreferences sharedPrefs =
+                                    PreferenceManager.getDefaultSharedPreferences(context);
+                            FeedSyncScheduler.schedule(context, sharedPrefs.getBoolean(
+                                    context.getString(R.string.settings_background_sync_key),
+                                    context.getResources().getBoolean(
+                                            R.bool.settings_background_sync_default)));
+                        }
+                    });
+        }
+    }
 
-            // Hide loading indicator because the data has been loaded
-            View loadingIndicator = findViewById(R.id.loading_indicator);
-            loadingIndicator.setVisibility(View.GONE);
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Copied, as a feed may deliver a page straight away, evicting the feeds of others
+        for (ArticleFeed feed : new ArrayList<>(mFeeds.values())) {
+            if (mFeeds.containsValue(feed)) {
+                feed.start(this);
+            }
+        }
+    }
 
-            // Set empty state text to display "No internet connection"
-            mEmptyStateTextView.setText(R.string.no_internet_connection);
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Keep loading across a configuration change, for the next instance to show
+        for (ArticleFeed feed : mFeeds.values()) {
+            if (isChangingConfigurations()) {
+                feed.detach();
+            } else {
+                feed.stop();
+            }
+        }
+    }
 
-            // Clear the adapter of previous article data
-            mAdapter.clear();
-        } else {
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        PreferenceManager.getDefaultSharedPreferences(this)
+                .unregisterOnSharedPreferenceChangeListener(mPreferenceListener);
+        if (!isChangingConfigurations()) {
+            for (ArticleFeed feed : mFeeds.values()) {
+                feed.destroy();
+            }
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mHandler.postDelayed(mRefreshPublishTimes, PUBLISH_TIME_REFRESH_MILLIS);
+
+        // The settings may have changed the query while they were shown.  Reading it again
+        // takes the preferences on the main thread, so only do so if they changed.
+        if (!mPreferencesChanged) {
+            return;
+        }
+        mPreferencesChanged = false;
+        ArticleQuery query = ArticleQuery.fromPreferences(this);
+        if (!query.equals(mQuery)) {
+            restartForNewQuery();
+        } else if (query.isReaderMode() != mQuery.isReaderMode()) {
+            // The same articles are requested, only reader mode was toggled, so keep the
+            // feeds and what they loaded
+            mQuery = query;
+            prefetchBodies(mLoadedArticles);
+        }
+    }
+
+    /**
+     * Drops the feeds of the old query, canceling whatever they are fetching, and starts
+     * over with the new one.
+     */
+    private void restartForNewQuery() {
+        // Includes the pages just outside the window, which may be prefetching
+        for (ArticleFeed feed : mFeeds.values()) {
+            feed.destroy();
+        }
+        mFeeds.clear();
+        mPageWindow = null;
+        recreate();
+    }
 
-            //Internet connection is good
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mHandler.removeCallbacks(mRefreshPublishTimes);
+    }
 
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
+    //region Search
 
-            // Initialize the loader. Pass in the int ID constant defined above and pass in null for
-            // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
-            // because this activity implements the LoaderCallbacks interface).
-            loaderManager.initLoader(ARTICLE_LOADER_ID, null, this);
-            Log.e(LOG_TAG, "calling loaderManager.initLoader");
+    /**
+     * Shows the fetched articles matching the given query, searched for on the device, or
+     * the loaded articles again if the query is empty.
+     */
+    private void showSearchResults(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            mSearchQuery = null;
+            mEmptyStateTextView.setText(getEmptyStateText());
+            submitArticles(mLoadedArticles);
+            return;
         }
 
-        // Set an item click listener on the ListView, which sends an intent to a web browser
-        // to open a website with more information about the selected article.
-        articleListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                // Find the current article that was clicked on
-            Article currentArticle = mAdapter.getItem(position);
+        mSearchQuery = query;
+        mEmptyStateTextView.setText(R.string.no_search_results);
+        submitArticles(ArticleSearchIndex.getInstance().search(query, SEARCH_RESULTS_LIMIT));
+    }
 
-            // Convert the String URL into a URI object (to pass into the Intent constructor)
-            Uri articleUri = Uri.parse(Objects.requireNonNull(currentArticle).getUrl());
+    /**
+     * Returns the text to show when there are no loaded articles: "No articles found.",
+     * "No internet connection" when there was nothing cached to show while offline, or why
+     * the articles could not be fetched.
+     */
+    private int getEmptyStateText() {
+        if (!isConnected()) {
+            return R.string.no_internet_connection;
+        }
+        if (mLoadError == null) {
+            return R.string.no_articles_found;
+        }
+        switch (mLoadError) {
+            case RATE_LIMITED:
+            case CIRCUIT_OPEN:
+                return R.string.news_service_busy;
+            default:
+                return R.string.error_loading_articles;
+        }
+    }
 
-            // Create a new intent to view the article URI
-            Intent websiteIntent = new Intent(Intent.ACTION_VIEW, articleUri);
+    //endregion
 
-            // Send the intent to launch a new activity
-            startActivity(websiteIntent);
-            }
-        });
+    /**
+     * Adds the load metrics to {@code adb shell dumpsys activity}, so they can be read off
+     * a device without opening the app's menu.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        LoadMetrics.dump(this, writer);
     }
 
     //region Custom Menu
@@ -213,6 +543,36 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the Options Menu we specified in XML
         getMenuInflater().inflate(R.menu.main_menu, menu);
+
+        // Search the articles as the query is typed, and go back to the feed when closed
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        final SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                showSearchResults(newText);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                showSearchResults(null);
+                return true;
+            }
+        });
         return true;
     }
 
@@ -225,8 +585,30 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
             startActivity(settingsIntent);
             return true;
         }
+        if (id == R.id.action_load_metrics) {
+            showLoadMetrics();
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Shows how long each stage of loading articles has taken so far.
+     */
+    private void showLoadMetrics() {
+        DialogInterface.OnClickListener resetListener = new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                LoadMetrics.reset();
+            }
+        };
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.load_metrics_menu_item)
+                .setMessage(LoadMetrics.getReport(this))
+                .setPositiveButton(android.R.string.ok, null)
+                .setNeutralButton(R.string.load_metrics_reset, resetListener)
+                .show();
+    }
+
     //endregion
 }
@@ -0,0 +1,73 @@
+package com.example.android.newsfeed;
+
+import android.app.ActivityManager;
+import android.app.Application;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link NewsFeedApplication} starts reading what the first screen needs as soon as the
+ * process starts, before any activity is created: the preferences the query is built
+ * from, and the cached articles of its first page.  {@link MainActivity} then finds both
+ * in memory instead of waiting on the disk on the main thread.
+ * <p>
+ * Nothing is fetched from the network here, as the process may have been started for a
+ * background sync rather than to show the feed.
+ */
+public class NewsFeedApplication extends Application {
+
+    /**
+     * Longest time from the process starting to its first activity being created for the
+     * activity to be what the process was started for
+     */
+    private static final long MAX_LAUNCH_DELAY_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    // When the process started, as far as the app can tell
+    private static final long sStartNanos = System.nanoTime();
+
+    // Whether the process was started to show an activity, rather than for a background sync
+    private static boolean sStartedInForeground;
+
+    /**
+     * Returns the {@link System#nanoTime} the process started at.
+     */
+    static long getStartNanos() {
+        return sStartNanos;
+    }
+
+    /**
+     * Returns true if the process was started to show an activity created at the given
+     * {@link System#nanoTime}, so the launch was a cold one.  A process started in the
+     * background, by a sync hours earlier say, makes for a warm launch instead.
+     */
+    static boolean wasStartedFor(long activityCreatedNanos) {
+        return sStartedInForeground
+                && activityCreatedNanos - sStartNanos <= MAX_LAUNCH_DELAY_NANOS;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // Only a process started for an activity is in the foreground before any is created
+        ActivityManager.RunningAppProcessInfo processInfo =
+                new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(processInfo);
+        sStartedInForeground = processInfo.importance
+                <= ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+
+        // Loading the preferences and reading the cache block, so do both off the main
+        // thread, while the first activity is being created
+        final Application application = this;
+        LoadPipeline.getInstance().executeIo(LoadPipeline.Priority.VISIBLE, new Runnable() {
+            @Override
+            public void run() {
+                ArticleQuery query = ArticleQuery.fromPreferences(application);
+                ArticleCache cache = ArticleCache.getInstance(application);
+                for (String url : query.getRequestUrls(1)) {
+                    cache.get(url);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.android.newsfeed;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * {@link PageWindow} holds a bounded, contiguous run of result pages for paged loading.
+ * Pages are added at either end of the window as the list is scrolled, and once more than
+ * the maximum number of pages are held, the page at the opposite end is evicted so memory
+ * stays flat however far the list is scrolled.
+ */
+final class PageWindow {
+
+    /** Number of articles requested per page */
+    static final int PAGE_SIZE = 10;
+
+    /** Number of rows from either end of the list at which the adjacent page is fetched */
+    static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+
+    /** Smallest window that still keeps the visible rows while a page is swapped in */
+    private static final int MIN_PAGES = 3;
+
+    private final int mMaxPages;
+
+    // Pages held in the window, keyed by page number (starting at 1)
+    private final TreeMap<Integer, List<Article>> mPages = new TreeMap<>();
+
+    // Last page the query has results for, known once a short page is delivered
+    private int mLastAvailablePage = Integer.MAX_VALUE;
+
+    /**
+     * Constructs a new {@link PageWindow}.
+     *
+     * @param maxResults is the number of articles the window should hold at most, it is
+     *                   rounded up to a whole number of pages
+     */
+    PageWindow(int maxResults) {
+        mMaxPages = Math.max(MIN_PAGES, (maxResults + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    int getFirstPage() {
+        return mPages.isEmpty() ? 0 : mPages.firstKey();
+    }
+
+    int getLastPage() {
+        return mPages.isEmpty() ? 0 : mPages.lastKey();
+    }
+
+    boolean contains(int page) {
+        return mPages.containsKey(page);
+    }
+
+    /**
+     * Returns the articles of all pages in the window, in page order.
+     */
+    List<Article> getArticles() {
+        List<Article> articles = new ArrayList<>();
+        for (List<Article> page : mPages.values()) {
+            articles.addAll(page);
+        }
+        return articles;
+    }
+
+    /**
+     * Adds or replaces the given page, evicting a page from the opposite end of the window
+     * if it grows beyond its bound.  Pages that are not adjacent to the window are ignored.
+     *
+     * @param page is the page number, starting at 1
+     * @param articles are the articles of the page
+     */
+    void put(int page, List<Article> articles) {
+        if (!mPages.isEmpty() && (page < getFirstPage() - 1 || page > getLastPage() + 1)) {
+            return;
+        }
+        if (articles.size() < PAGE_SIZE) {
+            mLastAvailablePage = page;
+        } else if (page >= mLastAvailablePage) {
+            // The short page was only the first articles parsed of a page still loading
+            mLastAvailablePage = Integer.MAX_VALUE;
+        }
+
+        mPages.put(page, articles);
+        if (mPages.size() > mMaxPages) {
+            mPages.remove(page == getFirstPage() ? getLastPage() : getFirstPage());
+        }
+    }
+
+    /**
+     * Returns the page that should be fetched next given what is visible, or 0 if no page
+     * needs to be fetched.
+     *
+     * @param firstVisible is the position of the first visible row
+     * @param visibleCount is the number of visible rows
+     */
+    int pageToPrefetch(int firstVisible, int visibleCount) {
+        if (mPages.isEmpty()) {
+            return 0;
+        }
+
+        int count = 0;
+        for (List<Article> page : mPages.values()) {
+            count += page.size();
+        }
+        if (firstVisible + visibleCount >= count - PREFETCH_DISTANCE
+                && getLastPage() < mLastAvailablePage) {
+            return getLastPage() + 1;
+        }
+        if (firstVisible <= PREFETCH_DISTANCE && getFirstPage() > 1) {
+            return getFirstPage() - 1;
+        }
+        return 0;
+    }
+}
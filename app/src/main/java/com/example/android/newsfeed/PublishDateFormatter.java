@@ -0,0 +1,174 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.support.annotation.VisibleForTesting;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PublishDateFormatter} turns article publication times into the strings shown in
+ * the list.  Recent articles get a relative time ("5m ago", "2h ago"), older ones their
+ * date.  Every string is built once and then served from a cache, so binding a row does
+ * not allocate once the cache is warm.
+ */
+final class PublishDateFormatter {
+
+    /** Publication time of an article whose date is missing or can't be parsed */
+    static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final String OUTPUT_PUBLISHED_DATE_FORMAT_STRING = "LLL dd, yyyy";
+
+    private static final long MINUTE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Most dates kept formatted, a power of two.  Articles of a feed span far fewer days,
+     * and consecutive days never share a slot.
+     */
+    private static final int MAX_CACHED_DATES = 256;
+
+    private final String mJustNow;
+    private final String mMinutesAgoFormat;
+    private final String mHoursAgoFormat;
+
+    // Relative strings indexed by the number of minutes or hours ago
+    private final String[] mMinutesAgo = new String[60];
+    private final String[] mHoursAgo = new String[24];
+
+    // Dates formatted so far, in the slot of the local day they fall on, along with the day
+    private final String[] mDates = new String[MAX_CACHED_DATES];
+    private final long[] mDateDays = new long[MAX_CACHED_DATES];
+    private final SimpleDateFormat mDateFormat =
+            new SimpleDateFormat(OUTPUT_PUBLISHED_DATE_FORMAT_STRING, Locale.US);
+    private final TimeZone mTimeZone = TimeZone.getDefault();
+
+    PublishDateFormatter(Context context) {
+        this(context.getString(R.string.publication_just_now),
+                context.getString(R.string.publication_minutes_ago),
+                context.getString(R.string.publication_hours_ago));
+    }
+
+    /**
+     * Constructs a formatter from the strings relative times are built with, so it can be
+     * used without a {@link Context}.
+     *
+     * @param justNow is shown for articles published less than a minute ago
+     * @param minutesAgoFormat formats the number of minutes since an article was published
+     * @param hoursAgoFormat formats the number of hours since an article was published
+     */
+    @VisibleForTesting
+    PublishDateFormatter(String justNow, String minutesAgoFormat, String hoursAgoFormat) {
+        mJustNow = justNow;
+        mMinutesAgoFormat = minutesAgoFormat;
+        mHoursAgoFormat = hoursAgoFormat;
+        mDateFormat.setTimeZone(mTimeZone);
+        Arrays.fill(mDateDays, UNKNOWN);
+    }
+
+    /**
+     * Returns the string to present for the given publication time.
+     *
+     * @param publishTime is the publication time in milliseconds since the epoch
+     * @param now is the current time in milliseconds since the epoch
+     * @return the relative time or date, or an empty string if the time is unknown
+     */
+    synchronized String format(long publishTime, long now) {
+        if (publishTime == UNKNOWN) {
+            return "";
+        }
+
+        long age = now - publishTime;
+        if (age < MINUTE_MILLIS) {
+            return mJustNow;
+        }
+        if (age < HOUR_MILLIS) {
+            int minutes = (int) (age / MINUTE_MILLIS);
+            if (mMinutesAgo[minutes] == null) {
+                mMinutesAgo[minutes] = String.format(Locale.getDefault(), mMinutesAgoFormat, minutes);
+            }
+            return mMinutesAgo[minutes];
+        }
+        if (age < DAY_MILLIS) {
+            int hours = (int) (age / HOUR_MILLIS);
+            if (mHoursAgo[hours] == null) {
+                mHoursAgo[hours] = String.format(Locale.getDefault(), mHoursAgoFormat, hours);
+            }
+            return mHoursAgo[hours];
+        }
+
+        long day = (publishTime + mTimeZone.getOffset(publishTime)) / DAY_MILLIS;
+        int slot = (int) (day & (MAX_CACHED_DATES - 1));
+        if (mDateDays[slot] != day) {
+            mDates[slot] = mDateFormat.format(new Date(publishTime));
+            mDateDays[slot] = day;
+        }
+        return mDates[slot];
+    }
+
+    /**
+     * Parses a publication date as sent by the Guardian API, "yyyy-MM-dd'T'HH:mm:ss'Z'".
+     * Called once per article as it is created, it reads the fields directly rather than
+     * going through {@link SimpleDateFormat}, which is neither cheap nor thread-safe.
+     *
+     * @param date is the date to parse
+     * @return the time in milliseconds since the epoch, or {@link #UNKNOWN} if the date
+     * is missing or malformed
+     */
+    static long parse(String date) {
+        if (date == null || date.length() != 20
+                || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != 'T'
+                || date.charAt(13) != ':' || date.charAt(16) != ':' || date.charAt(19) != 'Z') {
+            return UNKNOWN;
+        }
+
+        int year = parseDigits(date, 0, 4);
+        int month = parseDigits(date, 5, 7);
+        int day = parseDigits(date, 8, 10);
+        int hour = parseDigits(date, 11, 13);
+        int minute = parseDigits(date, 14, 16);
+        int second = parseDigits(date, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return UNKNOWN;
+        }
+
+        long days = daysSinceEpoch(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+    }
+
+    /**
+     * Returns the value of the decimal digits between the given indexes, or -1 if there
+     * is any other character.
+     */
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of days between 1970-01-01 and the given date of the proleptic
+     * Gregorian calendar.
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        // Count years from March so the leap day falls at the end of the year
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -1,29 +1,54 @@
 package com.example.android.newsfeed;
 
-import android.text.TextUtils;
+import android.net.Uri;
+import android.os.CancellationSignal;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.google.gson.stream.MalformedJsonException;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
 
 final class QueryUtils {
     private static final String LOG_TAG = QueryUtils.class.getName();
-    private static final int TEN_SECONDS = 10000;
-    private static final int FIFTEEN_SECONDS = 15000;
+    private static final String API_KEY_PARAMETER = "api-key";
+
+    /** Most attempts made at a request that keeps failing transiently */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /** Upper bound of the random delay before the first retry, doubled for every further one */
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+
+    /** Longest wait asked for by the server that is still waited out before retrying */
+    private static final long MAX_RETRY_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    /** Format of a Retry-After header holding a date rather than a number of seconds */
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private static final Random sRandom = new Random();
+
+    /** Chunks of a response read ahead of the parser at most */
+    private static final int PIPE_CHUNKS = 4;
 
     /**
      * Create a private constructor because no one should ever create a {@link QueryUtils} object.
@@ -34,101 +59,275 @@ final class QueryUtils {
     }
 
     /**
-     * Query the Guardian News and return a list of {@link Article} objects.
+     * Query the Guardian News and return a cache entry holding a list of {@link Article}
+     * objects, or why there is none.
+     * <p>
+     * Requests that fail transiently are retried after a random, exponentially growing
+     * delay, or the delay the server asked for with Retry-After.  Failures are reported
+     * to the {@link CircuitBreaker}, and no request is made at all while it is open.
+     *
+     * @param requestUrl the URL to query
+     * @param cached the entry previously fetched for the URL, if any.  Its validators make
+     *               the request conditional, and it is returned as is, without any parsing,
+     *               when the server reports the articles have not changed.
+     * @param cancellationSignal aborts the request and the parsing of its response when
+     *                           canceled, which throws
+     *                           {@link android.os.OperationCanceledException}.  May be null.
+     * @param progressListener is told about the articles parsed so far as the response
+     *                         arrives, may be null
      */
-    public static List<Article> fetchNewsData(String requestUrl) {
+    public static FetchResult fetchNewsData(String requestUrl, ArticleCache.Entry cached,
+                                            CancellationSignal cancellationSignal,
+                                            ArticleParser.ProgressListener progressListener) {
         Log.i(LOG_TAG, "fetchNewsData");
 
         // Create URL object
         URL url = createUrl(requestUrl);
+        if (url == null) {
+            return FetchResult.failure(FetchResult.Status.HTTP_ERROR);
+        }
 
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
-        try {
-            jsonResponse = makeHttpRequest(url);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem making the HTTP request.", e);
+        CircuitBreaker circuitBreaker = CircuitBreaker.getInstance();
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.allowRequest()) {
+                return FetchResult.failure(FetchResult.Status.CIRCUIT_OPEN);
+            }
+
+            // Perform HTTP request to the URL and extract the articles straight off the response
+            FetchResult result;
+            try {
+                result = makeHttpRequest(url, cached, cancellationSignal, progressListener);
+            } catch (RuntimeException e) {
+                circuitBreaker.onAbandoned();
+                throw e;
+            }
+
+            if (result.isSuccess()) {
+                circuitBreaker.onSuccess();
+                return result;
+            }
+            if (!result.isTransient()) {
+                // Such as a bad api key, which says nothing about the health of the API
+                circuitBreaker.onAbandoned();
+                return result;
+            }
+
+            // A short Retry-After is waited out below, only a longer one stops requests, for
+            // exactly as long as asked and without waiting here
+            boolean waitTooLong = result.getRetryAfterMillis() > MAX_RETRY_AFTER_MILLIS;
+            circuitBreaker.onFailure(waitTooLong ? result.getRetryAfterMillis() : 0);
+            if (attempt == MAX_ATTEMPTS || waitTooLong) {
+                return result;
+            }
+
+            // Spread retries out at random, so clients that failed together don't retry together
+            long backoffMillis = (long) (sRandom.nextDouble()
+                    * (INITIAL_BACKOFF_MILLIS << (attempt - 1)));
+            long delayMillis = Math.max(backoffMillis, result.getRetryAfterMillis());
+            Log.w(LOG_TAG, "Attempt " + attempt + " failed with " + result.getStatus()
+                    + ", retrying in " + delayMillis + "ms");
+            sleep(delayMillis, cancellationSignal);
         }
+    }
 
-        // Extract relevant fields from the JSON response and return a list of {@link Article}s
-        return extractNewsFromJson(jsonResponse);
+    /**
+     * Waits for the given time, or until the given signal is canceled, which throws
+     * {@link android.os.OperationCanceledException}.
+     */
+    private static void sleep(long millis, CancellationSignal cancellationSignal) {
+        final CountDownLatch canceled = new CountDownLatch(1);
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    canceled.countDown();
+                }
+            });
+        }
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            canceled.await(millis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (cancellationSignal != null) {
+                cancellationSignal.setOnCancelListener(null);
+                cancellationSignal.throwIfCanceled();
+            }
+        }
     }
 
     /**
-     * Return a list of {@link Article} objects that has been built up from
-     * parsing the given JSON response.
+     * Query the Guardian News for the text of a single article, as asked for by the
+     * {@code show-fields=bodyText} of the given request URL.  The request is reported to
+     * the {@link CircuitBreaker}, and not made at all while it is open.
+     *
+     * @param cancellationSignal aborts the request when canceled, which throws
+     *                           {@link android.os.OperationCanceledException}.  May be null.
+     * @return the text of the article, or null if the request failed or it has none
      */
-    private static List<Article> extractNewsFromJson(String newsJSON) {
-        // If the JSON string is empty or null, then return early.
-        if (TextUtils.isEmpty(newsJSON)) {
+    static String fetchArticleBody(String requestUrl, CancellationSignal cancellationSignal) {
+        URL url = createUrl(requestUrl);
+        if (url == null) {
             return null;
         }
 
-        // Create an empty ArrayList that we can start adding articles
-        List<Article> newsItems = new ArrayList<>();
+        CircuitBreaker circuitBreaker = CircuitBreaker.getInstance();
+        if (!circuitBreaker.allowRequest()) {
+            return null;
+        }
 
-        // Try to parse the JSON response string. If there's a problem with the way the JSON
-        // is formatted, a JSONException exception object will be thrown.
-        // Catch the exception so the app doesn't crash, and print the error message to the logs.
+        // How the API answered, or null if the request was abandoned
+        FetchResult result = null;
+        String body = null;
+        HttpClient.Response response = null;
         try {
-
-            // Create a JSONObject from the JSON response string
-            JSONObject baseJsonResponse = new JSONObject(newsJSON).getJSONObject("response");
-
-            // Extract the JSONArray associated with the key called "results",
-            // which represents a list of news articles.
-            JSONArray resultArray = baseJsonResponse.getJSONArray("results");
-
-            // For each article in the resultArray, create an {@link Article} object
-            for (int i = 0; i < resultArray.length(); i++) {
-
-                // Get a single article at position i within the list of results
-                JSONObject currentArticle = resultArray.getJSONObject(i);
-
-                // Extract the value for the key called "webTitle"
-                String title = currentArticle.getString("webTitle");
-
-                // Extract the value for the key called "sectionName"
-                String sectionName = currentArticle.getString("sectionName");
-
-                // Extract the JSONArray associated with the key called "tags",
-                // which represents a list of tags associated to the article.
-                JSONArray tagArray = currentArticle.getJSONArray("tags");
-
-                // Among the tags, find the first author and extract
-                String author = null;
-                for (int j = 0; j < tagArray.length(); j++) {
-                    JSONObject tag = tagArray.getJSONObject(j);
-                    String type = tag.getString("type");
-                    if (type != null && type.equals("contributor")) {
-                        author = tag.getString("webTitle");
-                        break;
-                    }
+            response = HttpClient.getInstance().get(url, Collections.<String, String>emptyMap(),
+                    cancellationSignal);
+            if (response.getCode() == HTTP_OK) {
+                // The API is answering, whatever the response holds
+                result = FetchResult.success(null);
+                body = ArticleParser.parseStringAt(response.getBody(),
+                        "response", "content", "fields", "bodyText");
+            } else {
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
+                result = FetchResult.httpError(response.getCode(),
+                        parseRetryAfter(response.getHeader("Retry-After")));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // An aborted request fails with an IOException, report it as canceled instead
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
+            Log.e(LOG_TAG, "Problem retrieving the article body.", e);
+            if (result == null) {
+                result = FetchResult.failure(FetchResult.Status.NETWORK_ERROR);
+            }
+        } finally {
+            if (response != null) {
+                try {
+                    response.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the response.", e);
                 }
+            }
+            report(circuitBreaker, result);
+        }
+        return body;
+    }
 
-                // Extract the value for the key called "webPublicationDate"
-                String publicationDate = currentArticle.getString("webPublicationDate");
+    /**
+     * Tells the given circuit breaker how an allowed request went, without retrying it.
+     *
+     * @param result is the outcome of the request, or null if it was abandoned
+     */
+    private static void report(CircuitBreaker circuitBreaker, FetchResult result) {
+        if (result == null || (!result.isSuccess() && !result.isTransient())) {
+            circuitBreaker.onAbandoned();
+        } else if (result.isSuccess()) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure(result.getRetryAfterMillis());
+        }
+    }
 
-                // Extract the value for the key called "url"
-                String url = currentArticle.getString("webUrl");
+    /**
+     * Returns the given request URL in a canonical form that identifies the query it makes:
+     * query parameters are sorted by name and the api key is left out, since it does not
+     * change the articles returned.
+     */
+    static String normalizeRequestUrl(String requestUrl) {
+        Uri uri = Uri.parse(requestUrl);
+        Uri.Builder builder = uri.buildUpon().clearQuery();
+
+        List<String> names = new ArrayList<>(uri.getQueryParameterNames());
+        Collections.sort(names);
+        for (String name : names) {
+            if (name.equals(API_KEY_PARAMETER)) {
+                continue;
+            }
+            for (String value : uri.getQueryParameters(name)) {
+                builder.appendQueryParameter(name, value);
+            }
+        }
+        return builder.build().toString();
+    }
 
-                // Create a new {@link Article} object with the title, publication date,
-                // and url of the article.
-                Article newsItem = new Article(title, sectionName, author, publicationDate, url);
+    /**
+     * Parses the articles off the given response body on a CPU thread of the
+     * {@link LoadPipeline}, while the body is read off the network on the calling thread.
+     * The bytes are handed over through a {@link BoundedPipe}, so a parser that falls
+     * behind holds up the reading rather than the response piling up in memory.
+     */
+    private static List<Article> readAndParse(
+            InputStream body, final CancellationSignal cancellationSignal,
+            final ArticleParser.ProgressListener progressListener) throws IOException {
+        final BoundedPipe pipe = new BoundedPipe(PIPE_CHUNKS);
+        Future<List<Article>> parse = LoadPipeline.getInstance().submitCpu(
+                new Callable<List<Article>>() {
+                    @Override
+                    public List<Article> call() throws IOException {
+                        try (InputStream in = pipe.getInputStream()) {
+                            return extractNewsFromStream(in, cancellationSignal,
+                                    progressListener);
+                        }
+                    }
+                });
 
-                // Add the new {@link Article} to the list of newsItems.
-                newsItems.add(newsItem);
+        try {
+            pipe.writeFrom(body);
+            return parse.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
+            throw new IllegalStateException(cause);
+        } finally {
+            // Don't parse a response that failed to arrive, if the parser hasn't started yet
+            parse.cancel(false);
+        }
+    }
 
-        } catch (JSONException e) {
-            // If an error is thrown when executing any of the above statements in the "try" block,
-            // catch the exception here, so the app doesn't crash. Print a log message
-            // with the message from the exception.
-            Log.e("QueryUtils", "Problem parsing the news item JSON results", e);
+    /**
+     * Parses the articles off the given stream with an {@link ArticleParser}, stopping with
+     * {@link android.os.OperationCanceledException} between two articles once the given
+     * signal is canceled, and reporting the articles parsed so far in batches to the given
+     * listener.  If the JSON is malformed, the articles parsed up to that point are kept.
+     */
+    private static List<Article> extractNewsFromStream(
+            InputStream inputStream, final CancellationSignal cancellationSignal,
+            ArticleParser.ProgressListener progressListener) throws IOException {
+        ArticleParser.CancellationCheck cancellationCheck = null;
+        if (cancellationSignal != null) {
+            cancellationCheck = new ArticleParser.CancellationCheck() {
+                @Override
+                public void throwIfCanceled() {
+                    cancellationSignal.throwIfCanceled();
+                }
+            };
         }
 
-        // Return the list of newsItems
-        return newsItems;
+        // Pull tokens off the stream as they arrive. If there's a problem with the way the JSON
+        // is formatted, a MalformedJsonException or IllegalStateException will be thrown.
+        // Catch it so the app doesn't crash, and keep the articles parsed up to that point.
+        ArticleParser parser = new ArticleParser(cancellationCheck, progressListener);
+        try {
+            parser.parse(inputStream);
+        } catch (MalformedJsonException | IllegalStateException e) {
+            Log.e(LOG_TAG, "Problem parsing the news item JSON results", e);
+        }
+        if (parser.getSkippedCount() > 0) {
+            Log.e(LOG_TAG, "Skipped " + parser.getSkippedCount()
+                    + " news items without title or url");
+        }
+        return parser.getArticles();
     }
 
     /**
@@ -145,64 +344,93 @@ final class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return the {@link Article}s parsed from
+     * the response, or why the request failed.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
-
-        // If the URL is null, then return early.
-        if (url == null) {
-            return jsonResponse;
+    private static FetchResult makeHttpRequest(URL url, ArticleCache.Entry cached,
+                                               CancellationSignal cancellationSignal,
+                                               ArticleParser.ProgressListener progressListener) {
+        FetchResult result;
+
+        // Only ask for a full response if what we have changed
+        Map<String, String> headers = new HashMap<>();
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                headers.put("If-None-Match", cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                headers.put("If-Modified-Since", cached.getLastModified());
+            }
         }
 
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
+        HttpClient.Response response = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(TEN_SECONDS);
-            urlConnection.setConnectTimeout(FIFTEEN_SECONDS);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            response = HttpClient.getInstance().get(url, headers, cancellationSignal);
 
             // If the request was successful (response code 200),
             // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == HTTP_OK) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // If the articles did not change (response code 304), reuse the cached ones.
+            if (response.getCode() == HTTP_OK) {
+                List<Article> articles = null;
+                long start = LoadMetrics.begin(LoadMetrics.Stage.READ_PARSE);
+                try {
+                    articles = readAndParse(response.getBody(), cancellationSignal,
+                            progressListener);
+                } finally {
+                    LoadMetrics.end(LoadMetrics.Stage.READ_PARSE, start, response.getBytesRead(),
+                            articles != null ? articles.size() : 0);
+                }
+                result = FetchResult.success(new ArticleCache.Entry(articles,
+                        System.currentTimeMillis(),
+                        response.getHeader("ETag"),
+                        response.getHeader("Last-Modified")));
+            } else if (response.getCode() == HTTP_NOT_MODIFIED && cached != null) {
+                result = FetchResult.success(cached.revalidated(System.currentTimeMillis(),
+                        response.getHeader("ETag"),
+                        response.getHeader("Last-Modified")));
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
+                result = FetchResult.httpError(response.getCode(),
+                        parseRetryAfter(response.getHeader("Retry-After")));
             }
         } catch (IOException e) {
+            // An aborted request fails with an IOException, report it as canceled instead
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
             Log.e(LOG_TAG, "Problem retrieving the article JSON results.", e);
+            result = FetchResult.failure(FetchResult.Status.NETWORK_ERROR);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (inputStream != null) {
-                // Closing the input stream could throw an IOException, which is why
-                // the makeHttpRequest(URL url) method signature specifies than an IOException
-                // could be thrown.
-                inputStream.close();
+            if (response != null) {
+                // The connection itself is kept alive for the next request, failing to
+                // drain it only means it can't be
+                try {
+                    response.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the response.", e);
+                }
             }
         }
-        return jsonResponse;
+        return result;
     }
 
     /**
-     * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
+     * Returns how long a Retry-After header value asks to wait, given either as a number of
+     * seconds or as a date, or 0 if there is no valid value.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
-            }
-        }
-        return output.toString();
+    private static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(retryAfter.trim())));
+        } catch (NumberFormatException e) {
+            SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+            try {
+                return Math.max(0, format.parse(retryAfter).getTime() - System.currentTimeMillis());
+            } catch (ParseException ignored) {
+                return 0;
+            }
+        }
     }
-}
\ No newline at end of file
+}
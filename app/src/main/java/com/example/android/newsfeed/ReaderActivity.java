@@ -0,0 +1,106 @@
+package com.example.android.newsfeed;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.TextView;
+
+/**
+ * {@link ReaderActivity} shows the text of an article stored by reader mode, so it opens
+ * without waiting on a web page to load, offline included.  It falls back to the browser
+ * if the text is no longer stored.
+ */
+public class ReaderActivity extends AppCompatActivity {
+
+    private static final String EXTRA_URL = "com.example.android.newsfeed.extra.URL";
+    private static final String EXTRA_TITLE = "com.example.android.newsfeed.extra.TITLE";
+    private static final String EXTRA_AUTHOR = "com.example.android.newsfeed.extra.AUTHOR";
+
+    private String mUrl;
+
+    /**
+     * Returns the intent showing the given article in reader mode.
+     */
+    static Intent newIntent(Context context, Article article) {
+        return new Intent(context, ReaderActivity.class)
+                .putExtra(EXTRA_URL, article.getUrl())
+                .putExtra(EXTRA_TITLE, article.getTitle())
+                .putExtra(EXTRA_AUTHOR, article.getAuthor());
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.reader_activity);
+
+        Intent intent = getIntent();
+        mUrl = intent.getStringExtra(EXTRA_URL);
+
+        TextView titleView = findViewById(R.id.reader_title);
+        titleView.setText(intent.getStringExtra(EXTRA_TITLE));
+
+        TextView authorView = findViewById(R.id.reader_author);
+        String author = intent.getStringExtra(EXTRA_AUTHOR);
+        authorView.setText(author);
+        authorView.setVisibility(author != null ? View.VISIBLE : View.GONE);
+
+        // The stored text is compressed, so read it off the main thread
+        final ArticleBodyStore store = ArticleBodyStore.getInstance(this);
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final String body = store.get(mUrl);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        showBody(body);
+                    }
+                });
+            }
+        });
+    }
+
+    private void showBody(String body) {
+        if (isFinishing()) {
+            return;
+        }
+        if (body == null) {
+            // Evicted since the article was tapped
+            openInBrowser();
+            finish();
+            return;
+        }
+
+        TextView bodyView = findViewById(R.id.reader_body);
+        bodyView.setText(body);
+    }
+
+    private void openInBrowser() {
+        startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(mUrl)));
+    }
+
+    //region Custom Menu
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.reader_menu, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_open_in_browser) {
+            openInBrowser();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    //endregion
+}
@@ -0,0 +1,244 @@
+package com.example.android.newsfeed;
+
+import android.os.CancellationSignal;
+import android.support.annotation.VisibleForTesting;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link RequestCoalescer} makes concurrent fetches of the same query share a single
+ * network call and parse.  The first caller for a request URL performs the fetch, and
+ * every caller that asks for the same URL while it is in flight waits for and receives
+ * the same result.  A caller that cancels stops waiting at once, but the shared call is
+ * only canceled once every one of its callers is, and only reports its progress to the
+ * caller that made it.
+ * <p>
+ * Calls are made on threads of their own rather than on the thread of the caller that
+ * made them, so that caller, like any other, is freed as soon as it cancels, even while
+ * the others keep the call going.
+ */
+final class RequestCoalescer {
+
+    private static final String LOG_TAG = RequestCoalescer.class.getName();
+
+    private static final RequestCoalescer sInstance = new RequestCoalescer();
+
+    // Makes the calls, one thread per call in flight, let go once idle
+    private static final ExecutorService CALL_EXECUTOR = Executors.newCachedThreadPool();
+
+    // Calls in flight, keyed by normalized request URL
+    private final Map<String, Call> mInFlight = new HashMap<>();
+
+    // Number of fetches asked for, and how many of them joined one already in flight
+    private final AtomicLong mRequestCount = new AtomicLong();
+    private final AtomicLong mCollapsedCount = new AtomicLong();
+
+    /**
+     * Returns the process-wide {@link RequestCoalescer}.
+     */
+    static RequestCoalescer getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    RequestCoalescer() {
+    }
+
+    /**
+     * Query the Guardian News as {@link QueryUtils#fetchNewsData} does, sharing the call
+     * with any other caller fetching the same URL at the same time.
+     *
+     * @param requestUrl the URL to query
+     * @param cached the entry previously fetched for the URL, if any.  Only the caller that
+     *               ends up making the call has its validators sent.
+     * @param cancellationSignal cancels this caller's fetch, may be null.  Canceling it
+     *                           throws {@link android.os.OperationCanceledException}.
+     * @param progressListener is told about the articles parsed so far if this caller
+     *                         makes the call, may be null
+     * @return the fetched entry, or why the request failed
+     */
+    FetchResult fetchNewsData(String requestUrl, ArticleCache.Entry cached,
+                              CancellationSignal cancellationSignal,
+                              ArticleParser.ProgressListener progressListener) {
+        return fetchNewsData(QueryUtils.normalizeRequestUrl(requestUrl), requestUrl, cached,
+                cancellationSignal, progressListener);
+    }
+
+    /**
+     * Query the Guardian News as {@link #fetchNewsData(String, ArticleCache.Entry,
+     * CancellationSignal, ArticleParser.ProgressListener)} does, sharing the call with the
+     * callers of the same key rather than of the same normalized request URL.
+     */
+    @VisibleForTesting
+    FetchResult fetchNewsData(final String key, String requestUrl, ArticleCache.Entry cached,
+                              CancellationSignal cancellationSignal,
+                              ArticleParser.ProgressListener progressListener) {
+        mRequestCount.incrementAndGet();
+        if (cancellationSignal != null) {
+            cancellationSignal.throwIfCanceled();
+        }
+
+        final Call call;
+        boolean owner;
+        synchronized (mInFlight) {
+            Call inFlight = mInFlight.get(key);
+            // A call whose callers all canceled it is of no use to a new caller
+            owner = inFlight == null || inFlight.mCancellationSignal.isCanceled();
+            call = owner ? new Call(requestUrl, cached, progressListener) : inFlight;
+            if (owner) {
+                mInFlight.put(key, call);
+            }
+            call.mCallers++;
+        }
+
+        if (owner) {
+            // Nobody was fetching this query, so make the call, with the priority of this
+            // caller's work
+            CALL_EXECUTOR.execute(LoadPipeline.inheritPriority(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        call.mTask.run();
+                    } finally {
+                        synchronized (mInFlight) {
+                            if (mInFlight.get(key) == call) {
+                                mInFlight.remove(key);
+                            }
+                        }
+                    }
+                }
+            }));
+        } else {
+            long collapsed = mCollapsedCount.incrementAndGet();
+            Log.i(LOG_TAG, "Joined fetch in flight, " + collapsed + " of "
+                    + mRequestCount.get() + " fetches collapsed so far");
+        }
+
+        // Released once the call completes, or as soon as this caller cancels, so a caller
+        // doesn't wait for a result it no longer wants
+        final CountDownLatch released = new CountDownLatch(1);
+        call.addWaiter(released);
+        if (cancellationSignal != null) {
+            cancellationSignal.setOnCancelListener(new CancellationSignal.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    leave(call);
+                    released.countDown();
+                }
+            });
+        }
+
+        FetchResult result = FetchResult.failure(FetchResult.Status.NETWORK_ERROR);
+        try {
+            released.await();
+            if (call.mTask.isDone()) {
+                result = call.mTask.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (!call.mCancellationSignal.isCanceled()) {
+                Log.e(LOG_TAG, "Problem fetching articles", e);
+            }
+        } finally {
+            if (cancellationSignal != null) {
+                cancellationSignal.setOnCancelListener(null);
+            }
+        }
+
+        if (cancellationSignal != null) {
+            cancellationSignal.throwIfCanceled();
+        }
+        return result;
+    }
+
+    /**
+     * Called when a caller of the given call cancels, canceling the call if it was the
+     * last caller waiting for it.
+     */
+    private void leave(Call call) {
+        boolean cancel;
+        synchronized (mInFlight) {
+            cancel = --call.mCallers == 0;
+        }
+        if (cancel) {
+            call.mCancellationSignal.cancel();
+        }
+    }
+
+    /**
+     * Returns the number of fetches asked for.
+     */
+    long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /**
+     * Returns the number of fetches that were served by a call already in flight.
+     */
+    long getCollapsedCount() {
+        return mCollapsedCount.get();
+    }
+
+    /**
+     * A fetch shared by the callers asking for its URL while it is in flight.
+     */
+    private static final class Call {
+
+        private final CancellationSignal mCancellationSignal = new CancellationSignal();
+        private final FutureTask<FetchResult> mTask;
+
+        // Callers that have not canceled, guarded by mInFlight
+        private int mCallers;
+
+        // Released when the task completes, null once it has, guarded by this call
+        private List<CountDownLatch> mWaiters = new ArrayList<>();
+
+        Call(final String requestUrl, final ArticleCache.Entry cached,
+             final ArticleParser.ProgressListener progressListener) {
+            mTask = new FutureTask<FetchResult>(new Callable<FetchResult>() {
+                @Override
+                public FetchResult call() {
+                    return QueryUtils.fetchNewsData(requestUrl, cached, mCancellationSignal,
+                            progressListener);
+                }
+            }) {
+                @Override
+                protected void done() {
+                    List<CountDownLatch> waiters;
+                    synchronized (Call.this) {
+                        waiters = mWaiters;
+                        mWaiters = null;
+                    }
+                    for (CountDownLatch waiter : waiters) {
+                        waiter.countDown();
+                    }
+                }
+            };
+        }
+
+        /**
+         * Releases the given latch once the task completes, at once if it already has.
+         */
+        void addWaiter(CountDownLatch waiter) {
+            synchronized (this) {
+                if (mWaiters != null) {
+                    mWaiters.add(waiter);
+                    return;
+                }
+            }
+            waiter.countDown();
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package com.example.android.newsfeed;
 
 import android.content.SharedPreferences;
+import android.os.Build;
 import android.os.Bundle;
 import android.preference.ListPreference;
+import android.preference.MultiSelectListPreference;
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 import android.widget.Toast;
 
+import java.util.Set;
+
 public class SettingsActivity extends AppCompatActivity {
 
     @Override
@@ -35,10 +39,42 @@ public class SettingsActivity extends AppCompatActivity {
 
             Preference sport = findPreference(getString(R.string.settings_sport_key));
             bindPreferenceSummaryToValue(sport);
+
+            Preference sports = findPreference(getString(R.string.settings_sports_key));
+            bindMultiSelectPreferenceSummaryToValue(sports);
+
+            Preference backgroundSync = findPreference(getString(R.string.settings_background_sync_key));
+            backgroundSync.setOnPreferenceChangeListener(this);
         }
 
         @Override
         public boolean onPreferenceChange(Preference preference, Object value) {
+            if (preference.getKey().equals(getString(R.string.settings_background_sync_key))) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    FeedSyncScheduler.schedule(getActivity(), (Boolean) value);
+                }
+                return true;
+            }
+
+            if (preference instanceof MultiSelectListPreference) {
+                // Summarize the selected values by their labels, in the order they are listed
+                MultiSelectListPreference multiSelectPreference = (MultiSelectListPreference) preference;
+                Set<?> values = (Set<?>) value;
+                CharSequence[] labels = multiSelectPreference.getEntries();
+                CharSequence[] entryValues = multiSelectPreference.getEntryValues();
+                StringBuilder summary = new StringBuilder();
+                for (int i = 0; i < entryValues.length; i++) {
+                    if (values.contains(entryValues[i].toString())) {
+                        if (summary.length() > 0) {
+                            summary.append(", ");
+                        }
+                        summary.append(labels[i]);
+                    }
+                }
+                preference.setSummary(summary);
+                return true;
+            }
+
             String stringValue = value.toString();
             if (preference instanceof ListPreference) {
                 ListPreference listPreference = (ListPreference) preference;
@@ -71,5 +107,13 @@ public class SettingsActivity extends AppCompatActivity {
             String preferenceString = preferences.getString(preference.getKey(), "");
             onPreferenceChange(preference, preferenceString);
         }
+
+        private void bindMultiSelectPreferenceSummaryToValue(Preference preference) {
+            preference.setOnPreferenceChangeListener(this);
+            SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(preference.getContext());
+            Set<String> preferenceValues = preferences.getStringSet(preference.getKey(),
+                    ((MultiSelectListPreference) preference).getValues());
+            onPreferenceChange(preference, preferenceValues);
+        }
     }
 }
@@ -0,0 +1,86 @@
+package android.os;
+
+/**
+ * Stands in for the platform {@link CancellationSignal} in the unit tests, where the
+ * android.jar they run against makes every method of it do nothing, so cancellation can be
+ * tested on the JVM.  It behaves as the platform class does within a process.
+ */
+public final class CancellationSignal {
+
+    /**
+     * Listens for cancellation.
+     */
+    public interface OnCancelListener {
+        /**
+         * Called when {@link CancellationSignal#cancel} is invoked.
+         */
+        void onCancel();
+    }
+
+    private boolean mCanceled;
+    private boolean mCancelInProgress;
+    private OnCancelListener mListener;
+
+    public boolean isCanceled() {
+        synchronized (this) {
+            return mCanceled;
+        }
+    }
+
+    public void throwIfCanceled() {
+        if (isCanceled()) {
+            throw new OperationCanceledException();
+        }
+    }
+
+    /**
+     * Cancels the operation and calls the listener, if any.  Does nothing if already
+     * canceled.
+     */
+    public void cancel() {
+        OnCancelListener listener;
+        synchronized (this) {
+            if (mCanceled) {
+                return;
+            }
+            mCanceled = true;
+            mCancelInProgress = true;
+            listener = mListener;
+        }
+
+        try {
+            if (listener != null) {
+                listener.onCancel();
+            }
+        } finally {
+            synchronized (this) {
+                mCancelInProgress = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Sets the listener, calling it at once if already canceled.  Waits for a cancellation
+     * in progress to finish calling the previous listener first.
+     */
+    public void setOnCancelListener(OnCancelListener listener) {
+        synchronized (this) {
+            while (mCancelInProgress) {
+                try {
+                    wait();
+                } catch (InterruptedException ignored) {
+                    // Keep waiting, as the platform does
+                }
+            }
+            if (mListener == listener) {
+                return;
+            }
+            mListener = listener;
+            if (!mCanceled || listener == null) {
+                return;
+            }
+        }
+        listener.onCancel();
+    }
+}
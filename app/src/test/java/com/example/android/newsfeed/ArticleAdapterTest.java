@@ -0,0 +1,96 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ArticleAdapterTest {
+
+    @Test
+    public void projectionHoldsTheFieldsRowsRead() {
+        RecordingArticle article = new RecordingArticle("https://a/1");
+
+        assertTrue(ArticleAdapter.DIFF_CALLBACK.areContentsTheSame(article, article));
+
+        assertEquals(new ArticleProjection(article.mRead), ArticleAdapter.PROJECTION);
+        assertFalse(article.mRead.contains(ArticleProjection.Field.TRAIL_TEXT));
+    }
+
+    @Test
+    public void changeOfAShownFieldChangesTheRow() {
+        Article article = article(1000L, "https://a/1.jpg", null);
+
+        // The trail text isn't shown, so it doesn't count
+        assertTrue(ArticleAdapter.DIFF_CALLBACK.areContentsTheSame(
+                article, article(1000L, "https://a/1.jpg", "Trail")));
+        assertFalse(ArticleAdapter.DIFF_CALLBACK.areContentsTheSame(
+                article, article(1000L, "https://a/2.jpg", null)));
+        assertFalse(ArticleAdapter.DIFF_CALLBACK.areContentsTheSame(
+                article, article(2000L, "https://a/1.jpg", null)));
+    }
+
+    private static Article article(long publishTime, String thumbnailUrl, String trailText) {
+        return new Article("Title", "Sport", "Author", publishTime,
+                Article.encodeUrl("https://a/1"), thumbnailUrl, trailText);
+    }
+
+    /**
+     * An article recording which of its fields are read.
+     */
+    private static final class RecordingArticle extends Article {
+
+        final Set<ArticleProjection.Field> mRead = EnumSet.noneOf(ArticleProjection.Field.class);
+
+        RecordingArticle(String url) {
+            super("Title", "Sport", "Author", 1000L, Article.encodeUrl(url), "https://a/1.jpg",
+                    "Trail");
+        }
+
+        @Override
+        public String getTitle() {
+            mRead.add(ArticleProjection.Field.TITLE);
+            return super.getTitle();
+        }
+
+        @Override
+        public String getSectionName() {
+            mRead.add(ArticleProjection.Field.SECTION);
+            return super.getSectionName();
+        }
+
+        @Override
+        public String getAuthor() {
+            mRead.add(ArticleProjection.Field.AUTHOR);
+            return super.getAuthor();
+        }
+
+        @Override
+        public long getPublishTime() {
+            mRead.add(ArticleProjection.Field.PUBLISH_TIME);
+            return super.getPublishTime();
+        }
+
+        @Override
+        public String getUrl() {
+            mRead.add(ArticleProjection.Field.URL);
+            return super.getUrl();
+        }
+
+        @Override
+        public String getThumbnailUrl() {
+            mRead.add(ArticleProjection.Field.THUMBNAIL);
+            return super.getThumbnailUrl();
+        }
+
+        @Override
+        public String getTrailText() {
+            mRead.add(ArticleProjection.Field.TRAIL_TEXT);
+            return super.getTrailText();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ArticleCacheTest {
+
+    @Test
+    public void entryRoundTrips() throws IOException {
+        List<Article> articles = Arrays.asList(
+                new Article("One", "Sport", "Ann Author", 1000L, Article.encodeUrl("https://a/1"),
+                        "https://i/1.jpg", "<b>Trail</b>"),
+                new Article("Two", "Sport", null, PublishDateFormatter.UNKNOWN,
+                        Article.encodeUrl("https://a/2"), null, null));
+        ArticleCache.Entry entry = new ArticleCache.Entry(articles, 1234L, 1000L, "\"v1\"",
+                null);
+
+        byte[] bytes = write(entry);
+        ArticleCache.Entry read = read(bytes);
+
+        assertEquals(1234L, read.getFetchedAt());
+        assertEquals(1000L, read.getFullFetchedAt());
+        assertEquals("\"v1\"", read.getETag());
+        assertNull(read.getLastModified());
+        assertEquals(2, read.getArticles().size());
+        Article first = read.getArticles().get(0);
+        assertEquals("One", first.getTitle());
+        assertEquals("Ann Author", first.getAuthor());
+        assertEquals(1000L, first.getPublishTime());
+        assertArrayEquals(Article.encodeUrl("https://a/1"), first.getUrlBytes());
+        assertEquals("<b>Trail</b>", first.getTrailText());
+        Article second = read.getArticles().get(1);
+        assertNull(second.getAuthor());
+        assertNull(second.getThumbnailUrl());
+        // Both read the section from the same entry of the string table
+        assertSame(first.getSectionName(), second.getSectionName());
+    }
+
+    @Test
+    public void otherFormatVersionReadsAsNoEntry() throws IOException {
+        byte[] bytes = write(entry(3));
+        bytes[3]++;
+        assertNull(read(bytes));
+    }
+
+    @Test
+    public void negativeCountFailsWithIOException() throws IOException {
+        byte[] bytes = write(new ArticleCache.Entry(
+                Arrays.<Article>asList(), 0, null, null));
+        // The table size is the varint after the version, two times and two absent validators
+        int tableSize = 4 + 8 + 8 + 1 + 1;
+        byte[] corrupt = Arrays.copyOf(bytes, tableSize + 5);
+        corrupt[tableSize] = (byte) 0xff;
+        corrupt[tableSize + 1] = (byte) 0xff;
+        corrupt[tableSize + 2] = (byte) 0xff;
+        corrupt[tableSize + 3] = (byte) 0xff;
+        corrupt[tableSize + 4] = (byte) 0x0f;
+        assertReadFails(corrupt);
+    }
+
+    @Test
+    public void negativeTableIndexFailsWithIOException() throws IOException {
+        byte[] bytes = write(new ArticleCache.Entry(Arrays.asList(new Article(null, "S", null,
+                0, Article.encodeUrl("https://a/1"), null, null)), 0, null, null));
+        // The section index follows the header, the table holding "S", the article count
+        // and the absent title
+        int sectionIndex = 4 + 8 + 8 + 1 + 1 + 1 + 3 + 1 + 1;
+        assertEquals(1, bytes[sectionIndex]);
+        byte[] corrupt = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, corrupt, 0, sectionIndex);
+        System.arraycopy(new byte[] {(byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f},
+                0, corrupt, sectionIndex, 5);
+        System.arraycopy(bytes, sectionIndex + 1, corrupt, sectionIndex + 5,
+                bytes.length - sectionIndex - 1);
+        assertReadFails(corrupt);
+    }
+
+    @Test
+    public void corruptBytesOnlyFailWithIOException() throws IOException {
+        byte[] bytes = write(entry(20));
+        Random random = new Random(14);
+        for (int i = 0; i < 5000; i++) {
+            byte[] corrupt = bytes.clone();
+            for (int flips = 1 + random.nextInt(3); flips > 0; flips--) {
+                corrupt[4 + random.nextInt(corrupt.length - 4)] = (byte) random.nextInt(256);
+            }
+            try {
+                read(corrupt);
+            } catch (IOException expected) {
+                // Reported as unreadable, so the file is deleted
+            }
+        }
+    }
+
+    @Test
+    public void truncatedEntryFailsWithIOException() throws IOException {
+        byte[] bytes = write(entry(5));
+        for (int length = 0; length < bytes.length; length++) {
+            assertReadFails(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    private static ArticleCache.Entry entry(int size) {
+        Article[] articles = new Article[size];
+        for (int i = 0; i < size; i++) {
+            articles[i] = new Article("Title " + i, "Section " + (i % 3),
+                    i % 2 == 0 ? "Author " + (i % 4) : null, i * 1000L,
+                    Article.encodeUrl("https://a/" + i), "https://i/" + i, "Trail " + i);
+        }
+        return new ArticleCache.Entry(Arrays.asList(articles), 1234L, "\"v1\"",
+                "Sat, 14 Jul 2018 21:05:12 GMT");
+    }
+
+    private static byte[] write(ArticleCache.Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ArticleCache.writeEntry(out, entry);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ArticleCache.Entry read(byte[] bytes) throws IOException {
+        return ArticleCache.readEntry(
+                new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
+    }
+
+    private static void assertReadFails(byte[] bytes) {
+        try {
+            read(bytes);
+            fail("Read a corrupt entry of " + bytes.length + " bytes");
+        } catch (IOException expected) {
+            // Reported as unreadable, so the file is deleted
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.android.newsfeed;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the heap retained by 1k and 10k articles with what they retained as five
+ * separate strings each, before sections and authors were pooled and URLs kept as bytes.
+ * Both are built from the same strings, each copied as a parser would create it.
+ */
+public class ArticleFootprintTest {
+
+    private static List<Article> sFixture;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        ArticleParser parser = new ArticleParser(null, null);
+        parser.parse(new ByteArrayInputStream(Fixtures.search(1000)));
+        sFixture = parser.getArticles();
+    }
+
+    @Test
+    public void thousandArticlesRetainLess() {
+        assertRetainsLess(1000);
+    }
+
+    @Test
+    public void tenThousandArticlesRetainLess() {
+        assertRetainsLess(10000);
+    }
+
+    private static void assertRetainsLess(int count) {
+        List<Article> articles = new ArrayList<>(count);
+        List<StringArticle> stringArticles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Article article = sFixture.get(i % sFixture.size());
+            String url = article.getUrl() + "?n=" + i;
+            articles.add(new Article(copy(article.getTitle()), copy(article.getSectionName()),
+                    copy(article.getAuthor()), article.getPublishTime(), copy(url)));
+            stringArticles.add(new StringArticle(copy(article.getTitle()),
+                    copy(article.getSectionName()), copy(article.getAuthor()),
+                    article.getPublishTime(), copy(url)));
+        }
+
+        long size = GraphLayout.parseInstance(articles).totalSize();
+        long stringSize = GraphLayout.parseInstance(stringArticles).totalSize();
+        System.out.println(String.format(Locale.US,
+                "%d articles retain %d bytes, %d as strings (%d%% less)",
+                count, size, stringSize, 100 - 100 * size / stringSize));
+        assertTrue(size + " >= " + stringSize, size < stringSize * 9 / 10);
+    }
+
+    /**
+     * Returns a copy of the given string, as parsing it off a response would create.
+     */
+    private static String copy(String value) {
+        return value != null ? new String(value.toCharArray()) : null;
+    }
+
+    /**
+     * The layout of {@link Article} before, five separate strings.
+     */
+    private static final class StringArticle {
+
+        private final String mTitle;
+        private final String mSectionName;
+        private final String mAuthor;
+        private final long mPublishTime;
+        private final String mUrl;
+
+        StringArticle(String title, String sectionName, String author, long publishTime,
+                      String url) {
+            mTitle = title;
+            mSectionName = sectionName;
+            mAuthor = author;
+            mPublishTime = publishTime;
+            mUrl = url;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ArticleMergerTest {
+
+    @Test
+    public void singleListIsReturnedAsIs() {
+        List<Article> list = Arrays.asList(article("a", 1));
+        assertSame(list, ArticleMerger.merge(
+                Collections.singletonList(list), ArticleMerger.Order.NEWEST));
+    }
+
+    @Test
+    public void relevanceInterleavesRanks() {
+        List<Article> merged = ArticleMerger.merge(Arrays.asList(
+                Arrays.asList(article("a1", 0), article("a2", 0), article("a3", 0)),
+                Arrays.asList(article("b1", 0))), ArticleMerger.Order.RELEVANCE);
+        assertEquals(Arrays.asList("a1", "b1", "a2", "a3"), urls(merged));
+    }
+
+    @Test
+    public void newestSortsByPublishTimeWithUnknownLast() {
+        List<Article> merged = ArticleMerger.merge(Arrays.asList(
+                Arrays.asList(article("a", 30), article("b", PublishDateFormatter.UNKNOWN)),
+                Arrays.asList(article("c", 40), article("d", 10))),
+                ArticleMerger.Order.NEWEST);
+        assertEquals(Arrays.asList("c", "a", "d", "b"), urls(merged));
+    }
+
+    @Test
+    public void duplicatesAreKeptOnceAtTheirFirstPlace() {
+        List<Article> merged = ArticleMerger.merge(Arrays.asList(
+                Arrays.asList(article("a", 0), article("shared", 0)),
+                Arrays.asList(article("shared", 0), article("b", 0))),
+                ArticleMerger.Order.RELEVANCE);
+        assertEquals(Arrays.asList("a", "shared", "b"), urls(merged));
+    }
+
+    @Test
+    public void nullListsAreSkipped() {
+        List<Article> merged = ArticleMerger.merge(Arrays.asList(
+                null, Arrays.asList(article("a", 2), article("b", 1))),
+                ArticleMerger.Order.NEWEST);
+        assertEquals(Arrays.asList("a", "b"), urls(merged));
+
+        merged = ArticleMerger.merge(Arrays.asList(
+                Arrays.asList(article("a", 0)), null), ArticleMerger.Order.RELEVANCE);
+        assertEquals(Collections.singletonList("a"), urls(merged));
+    }
+
+    private static Article article(String url, long publishTime) {
+        return new Article("Title", "Sport", null, publishTime, url);
+    }
+
+    private static List<String> urls(List<Article> articles) {
+        List<String> urls = new ArrayList<>();
+        for (Article article : articles) {
+            urls.add(article.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.android.newsfeed;
+
+import com.google.gson.stream.MalformedJsonException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ArticleParserTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void parsesEveryResultOfTheFixtures() throws IOException {
+        for (int results : Fixtures.RESULT_COUNTS) {
+            ArticleParser parser = parse(Fixtures.search(results), null);
+            assertEquals(results, parser.getArticles().size());
+            assertEquals(0, parser.getSkippedCount());
+        }
+    }
+
+    @Test
+    public void readsTheFieldsOfAnArticle() throws IOException {
+        Article article = parse(Fixtures.search(10), null).getArticles().get(0);
+        assertEquals("Tiger Woods outlast Megan Rapinoe to reach the final", article.getTitle());
+        assertEquals("Sport", article.getSectionName());
+        assertEquals("Les Carpenter in New York", article.getAuthor());
+        assertEquals(PublishDateFormatter.parse("2018-07-14T21:05:12Z"),
+                article.getPublishTime());
+        assertEquals("https://www.theguardian.com/sport/2018/jul/14/"
+                + "tiger-woods-outlast-megan-rapinoe-to-reach-the-final", article.getUrl());
+        assertNotNull(article.getThumbnailUrl());
+        assertNotNull(article.getTrailText());
+    }
+
+    @Test
+    public void missingBylineLeavesNoAuthor() throws IOException {
+        // The fifth result of the fixture has no byline
+        Article article = parse(Fixtures.search(10), null).getArticles().get(4);
+        assertNull(article.getAuthor());
+        assertNotNull(article.getTitle());
+    }
+
+    @Test
+    public void skipsResultsWithoutTitleOrUrl() throws IOException {
+        ArticleParser parser = parse(response(
+                "{\"webTitle\":\"Kept\",\"webUrl\":\"https://a/1\"},"
+                        + "{\"webTitle\":\"No url\"},"
+                        + "{\"webUrl\":\"https://a/2\",\"webTitle\":null},"
+                        + "{\"webTitle\":\"Also kept\",\"webUrl\":\"https://a/3\","
+                        + "\"fields\":{\"byline\":7,\"thumbnail\":null}}"), null);
+
+        assertEquals(2, parser.getArticles().size());
+        assertEquals(2, parser.getSkippedCount());
+        assertEquals("Kept", parser.getArticles().get(0).getTitle());
+        assertNull(parser.getArticles().get(1).getAuthor());
+        assertNull(parser.getArticles().get(1).getThumbnailUrl());
+    }
+
+    @Test
+    public void malformedJsonKeepsTheArticlesBeforeIt() throws IOException {
+        byte[] truncated = response(
+                "{\"webTitle\":\"One\",\"webUrl\":\"https://a/1\"},"
+                        + "{\"webTitle\":\"Two\",\"webUrl\":\"https://a/2\"},"
+                        + "{\"webTitle\":\"Three\",\"webUrl\":\"https://a/3\" ]]");
+        ArticleParser parser = new ArticleParser(null, null);
+        try {
+            parser.parse(new ByteArrayInputStream(truncated));
+            fail("Parsed malformed JSON");
+        } catch (MalformedJsonException expected) {
+            // The articles up to the problem are kept
+        }
+        assertEquals(2, parser.getArticles().size());
+    }
+
+    @Test
+    public void unexpectedShapeThrowsIllegalState() throws IOException {
+        try {
+            parse("{\"response\":{\"results\":{}}}".getBytes(UTF_8), null);
+            fail("Parsed results that aren't an array");
+        } catch (IllegalStateException expected) {
+            // A response of another shape isn't mistaken for an empty one
+        }
+    }
+
+    @Test
+    public void reportsProgressInBatches() throws IOException {
+        final List<Integer> batches = new ArrayList<>();
+        ArticleParser.ProgressListener listener = new ArticleParser.ProgressListener() {
+            @Override
+            public void onArticlesParsed(List<Article> articles) {
+                batches.add(articles.size());
+            }
+        };
+        parse(Fixtures.search(100), listener);
+
+        // A small first batch to show something sooner, then batches of ten
+        assertEquals(5, (int) batches.get(0));
+        assertEquals(15, (int) batches.get(1));
+        assertEquals(95, (int) batches.get(batches.size() - 1));
+        assertEquals(10, batches.size());
+    }
+
+    @Test
+    public void cancellationStopsBetweenArticles() throws IOException {
+        final int[] checks = {0};
+        ArticleParser parser = new ArticleParser(new ArticleParser.CancellationCheck() {
+            @Override
+            public void throwIfCanceled() {
+                if (++checks[0] > 3) {
+                    throw new IllegalArgumentException("Canceled");
+                }
+            }
+        }, null);
+        try {
+            parser.parse(new ByteArrayInputStream(Fixtures.search(10)));
+            fail("Parse wasn't canceled");
+        } catch (IllegalArgumentException expected) {
+            // The check's exception is passed on
+        }
+        assertEquals(3, parser.getArticles().size());
+    }
+
+    @Test
+    public void parseStringAtFindsTheNestedString() throws IOException {
+        byte[] item = ("{\"response\":{\"status\":\"ok\",\"content\":{\"id\":\"a\","
+                + "\"tags\":[{\"id\":\"t\"}],\"fields\":{\"headline\":\"H\","
+                + "\"bodyText\":\"Body \u2013 text\"}}}}").getBytes(UTF_8);
+
+        assertEquals("Body \u2013 text", ArticleParser.parseStringAt(stream(item),
+                "response", "content", "fields", "bodyText"));
+        assertNull(ArticleParser.parseStringAt(stream(item),
+                "response", "content", "fields", "main"));
+        assertNull(ArticleParser.parseStringAt(stream(item),
+                "response", "content", "id", "bodyText"));
+    }
+
+    private static ArticleParser parse(byte[] response,
+            ArticleParser.ProgressListener listener) throws IOException {
+        ArticleParser parser = new ArticleParser(null, listener);
+        parser.parse(stream(response));
+        return parser;
+    }
+
+    private static byte[] response(String results) {
+        return ("{\"response\":{\"status\":\"ok\",\"results\":[" + results + "]}}")
+                .getBytes(UTF_8);
+    }
+
+    private static InputStream stream(byte[] bytes) {
+        return new ByteArrayInputStream(bytes);
+    }
+}
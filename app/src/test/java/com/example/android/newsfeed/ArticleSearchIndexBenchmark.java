@@ -0,0 +1,107 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures answering a prefix query over 10k and 100k indexed articles, with
+ * {@link ArticleSearchIndex} and with a scan of every article for the words of the query,
+ * as searching the fetched articles would take without the index.  Building the index is
+ * measured too.
+ * <p>
+ * The articles are those of the 1000 result fixture over and over, each with a URL, a
+ * publish time and a number in its title of its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ArticleSearchIndexBenchmark {
+
+    /** Starts of words of the titles of the fixture, "federer" and "cubs" among others */
+    private static final String QUERY = "fed cub";
+
+    /** Results asked for, as many as the search screen shows */
+    private static final int LIMIT = 20;
+
+    @Param({"10000", "100000"})
+    public int articles;
+
+    private List<Article> mArticles;
+    private ArticleSearchIndex mIndex;
+
+    @Setup
+    public void setUp() throws IOException {
+        ArticleParser parser = new ArticleParser(null, null);
+        parser.parse(new ByteArrayInputStream(Fixtures.search(1000)));
+        List<Article> fixture = parser.getArticles();
+
+        mArticles = new ArrayList<>(articles);
+        for (int i = 0; i < articles; i++) {
+            Article article = fixture.get(i % fixture.size());
+            mArticles.add(new Article(article.getTitle() + " " + i, article.getSectionName(),
+                    article.getAuthor(), article.getPublishTime() - i * 60000L,
+                    article.getUrl() + "?n=" + i));
+        }
+        mIndex = index();
+    }
+
+    @Benchmark
+    public ArticleSearchIndex index() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.addAll(mArticles);
+        return index;
+    }
+
+    @Benchmark
+    public List<Article> search() {
+        return mIndex.search(QUERY, LIMIT);
+    }
+
+    /**
+     * Finds the articles holding every word of the query in their title, section or author,
+     * newest first.
+     */
+    @Benchmark
+    public List<Article> scan() {
+        String[] words = QUERY.split(" ");
+        List<Article> matches = new ArrayList<>();
+        for (Article article : mArticles) {
+            String text = (article.getTitle() + " " + article.getSectionName() + " "
+                    + article.getAuthor()).toLowerCase(Locale.ROOT);
+            boolean matched = true;
+            for (String word : words) {
+                if (!text.contains(word)) {
+                    matched = false;
+                    break;
+                }
+            }
+            if (matched) {
+                matches.add(article);
+            }
+        }
+
+        Collections.sort(matches, new Comparator<Article>() {
+            @Override
+            public int compare(Article a, Article b) {
+                return a.getPublishTime() < b.getPublishTime() ? 1
+                        : (a.getPublishTime() > b.getPublishTime() ? -1 : 0);
+            }
+        });
+        return matches.subList(0, Math.min(LIMIT, matches.size()));
+    }
+}
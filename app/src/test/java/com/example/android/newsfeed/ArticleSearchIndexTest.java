@@ -0,0 +1,113 @@
+package com.example.android.newsfeed;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ArticleSearchIndexTest {
+
+    private ArticleSearchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new ArticleSearchIndex();
+    }
+
+    @Test
+    public void matchesTheStartOfWordsInAnyField() {
+        mIndex.addAll(Arrays.asList(
+                article("1", "Federer wins at Wimbledon", "Tennis", "Kevin Mitchell", 0),
+                article("2", "Transfer window opens", "Football", null, 0),
+                article("3", "Tour de France: stage 8", "Sport", "William Fotheringham", 0)));
+
+        assertEquals(urls("1"), urls(mIndex.search("wimble", 10)));
+        assertEquals(urls("2"), urls(mIndex.search("FOOT", 10)));
+        assertEquals(urls("3"), urls(mIndex.search("fother", 10)));
+        assertEquals(urls("3"), urls(mIndex.search("8", 10)));
+        assertTrue(mIndex.search("imbledon", 10).isEmpty());
+    }
+
+    @Test
+    public void everyWordMustMatch() {
+        mIndex.addAll(Arrays.asList(
+                article("1", "England beat Sweden", "Football", null, 0),
+                article("2", "England lose to India", "Cricket", null, 0)));
+
+        assertEquals(urls("2"), urls(mIndex.search("england cricket", 10)));
+        assertTrue(mIndex.search("england rugby", 10).isEmpty());
+        assertTrue(mIndex.search(" ,. ", 10).isEmpty());
+    }
+
+    @Test
+    public void ranksTitleMatchesFirstThenNewest() {
+        mIndex.addAll(Arrays.asList(
+                article("section", "Weekend round-up", "Golf", null, 30),
+                article("title-old", "Golf: the Open begins", "Sport", null, 10),
+                article("title-new", "Golf: the Open, day two", "Sport", null, 20),
+                article("author", "Weekend previews", "Sport", "Ewan Golfer", 40)));
+
+        assertEquals(urls("title-new", "title-old", "author", "section"),
+                urls(mIndex.search("golf", 10)));
+    }
+
+    @Test
+    public void wholeWordRanksAboveItsPrefix() {
+        mIndex.addAll(Arrays.asList(
+                article("whole", "Rugby league results", "Sport", null, 10),
+                article("longer", "Rugby leagues to merge", "Sport", null, 20)));
+
+        // Both match in the title, but only the older one has the whole word
+        assertEquals(urls("whole", "longer"), urls(mIndex.search("league", 10)));
+        assertEquals(urls("longer", "whole"), urls(mIndex.search("leagu", 10)));
+    }
+
+    @Test
+    public void limitKeepsTheBestMatches() {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            articles.add(article(String.valueOf(i), "Cycling stage " + i, "Sport", null, i));
+        }
+        mIndex.addAll(articles);
+
+        assertEquals(urls("49", "48", "47"), urls(mIndex.search("cycling", 3)));
+        assertTrue(mIndex.search("cycling", 0).isEmpty());
+    }
+
+    @Test
+    public void refetchedArticleReplacesItsWords() {
+        mIndex.addAll(Collections.singletonList(
+                article("1", "Live: Wimbledon day one", "Tennis", null, 0)));
+        Article updated = article("1", "Wimbledon day one as it happened", "Tennis", null, 0);
+        mIndex.addAll(Collections.singletonList(updated));
+
+        assertEquals(1, mIndex.size());
+        assertTrue(mIndex.search("live", 10).isEmpty());
+        assertSame(updated, mIndex.search("happened", 10).get(0));
+        assertSame(updated, mIndex.search("wimbledon", 10).get(0));
+    }
+
+    private static Article article(String url, String title, String section, String author,
+            long publishTime) {
+        return new Article(title, section, author, publishTime, url);
+    }
+
+    private static List<String> urls(String... urls) {
+        return Arrays.asList(urls);
+    }
+
+    private static List<String> urls(List<Article> articles) {
+        List<String> urls = new ArrayList<>();
+        for (Article article : articles) {
+            urls.add(article.getUrl());
+        }
+        return urls;
+    }
+}
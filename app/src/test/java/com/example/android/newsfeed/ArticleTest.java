@@ -0,0 +1,65 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ArticleTest {
+
+    @Test
+    public void urlRoundTripsThroughUtf8() {
+        String url = "https://www.theguardian.com/football/2018/jul/14/"
+                + "m\u00fcller-sch\u00fcrrle-\u20ac-\uD83C\uDFC6";
+        Article article = new Article("Title", "Football", null, 0, url);
+        assertEquals(url, article.getUrl());
+        assertArrayEquals(url.getBytes(Charset.forName("UTF-8")),
+                article.getUrlBytes());
+    }
+
+    @Test
+    public void missingUrlStaysNull() {
+        assertNull(Article.encodeUrl(null));
+        assertNull(new Article("Title", null, null, 0, null).getUrl());
+    }
+
+    @Test
+    public void sectionsAndAuthorsAreShared() {
+        // Built at run time, so the strings are equal but not the same instances
+        String section = new StringBuilder("Sport").toString();
+        String sameSection = new StringBuilder("Sport").toString();
+        String author = new StringBuilder("Sean Ingle").toString();
+        String sameAuthor = new StringBuilder("Sean Ingle").toString();
+        assertNotSame(section, sameSection);
+
+        Article a = new Article("A", section, author, 0, "https://a/1");
+        Article b = new Article("B", sameSection, sameAuthor, 0, "https://a/2");
+        assertSame(a.getSectionName(), b.getSectionName());
+        assertSame(a.getAuthor(), b.getAuthor());
+    }
+
+    @Test
+    public void titlesAreNotShared() {
+        String title = new StringBuilder("Same title").toString();
+        String sameTitle = new StringBuilder("Same title").toString();
+        Article a = new Article(title, null, null, 0, "https://a/1");
+        Article b = new Article(sameTitle, null, null, 0, "https://a/2");
+        assertNotSame(a.getTitle(), b.getTitle());
+    }
+
+    @Test
+    public void articlesWithTheSameUrlAreEqual() {
+        Article a = new Article("Live: day one", "Tennis", null, 0, "https://a/1");
+        Article b = new Article("Day one as it happened", "Sport", "Author", 1, "https://a/1");
+        Article c = new Article("Live: day one", "Tennis", null, 0, "https://a/2");
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertFalse(a.equals(c));
+    }
+}
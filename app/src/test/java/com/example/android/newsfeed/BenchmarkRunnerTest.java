@@ -0,0 +1,45 @@
+package com.example.android.newsfeed;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+
+/**
+ * Runs the JMH benchmarks of this package when the build is given {@code -Pbenchmark}, and
+ * is skipped otherwise.  Time per operation and, through the GC profiler, bytes allocated
+ * per operation ({@code gc.alloc.rate.norm}) are printed and written to
+ * {@code build/reports/jmh/results.json}.
+ */
+public class BenchmarkRunnerTest {
+
+    private static final File RESULTS = new File("build/reports/jmh/results.json");
+
+    @Test
+    public void runBenchmarks() throws RunnerException {
+        Assume.assumeTrue("Benchmarks run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+
+        //noinspection ResultOfMethodCallIgnored
+        RESULTS.getParentFile().mkdirs();
+        Options options = new OptionsBuilder()
+                .include(BenchmarkRunnerTest.class.getPackage().getName() + "\\..*Benchmark\\.")
+                // The test runner's class path can't be handed to a forked JVM
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(RESULTS.getPath())
+                .build();
+        new Runner(options).run();
+    }
+}
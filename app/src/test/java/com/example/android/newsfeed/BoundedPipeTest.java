@@ -0,0 +1,166 @@
+package com.example.android.newsfeed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BoundedPipeTest {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        mWriter.shutdownNow();
+    }
+
+    @Test
+    public void bytesArriveInOrder() throws Exception {
+        byte[] bytes = new byte[100 * 1000];
+        new Random(24).nextBytes(bytes);
+        BoundedPipe pipe = new BoundedPipe(2);
+
+        Future<Void> written = write(pipe, new ByteArrayInputStream(bytes));
+        byte[] read = readFully(pipe.getInputStream());
+
+        assertArrayEquals(bytes, read);
+        assertNull(written.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void emptyStreamReadsAsEnd() throws Exception {
+        BoundedPipe pipe = new BoundedPipe(1);
+        write(pipe, new ByteArrayInputStream(new byte[0]));
+        assertEquals(-1, pipe.getInputStream().read());
+    }
+
+    @Test
+    public void writerWaitsForSlowReader() throws Exception {
+        CountingStream source = new CountingStream(100 * CHUNK_SIZE);
+        BoundedPipe pipe = new BoundedPipe(2);
+
+        Future<Void> written = write(pipe, source);
+        Thread.sleep(200);
+
+        // Two chunks queued plus the one the writer waits to hand over
+        assertFalse(written.isDone());
+        assertTrue(source.mRead.get() <= 3 * CHUNK_SIZE);
+
+        assertEquals(100 * CHUNK_SIZE, readFully(pipe.getInputStream()).length);
+        written.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void failedWriteFailsTheRead() throws Exception {
+        final IOException failure = new IOException("Connection reset");
+        InputStream source = new CountingStream(Long.MAX_VALUE) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (mRead.get() >= 10 * CHUNK_SIZE) {
+                    throw failure;
+                }
+                return super.read(b, off, len);
+            }
+        };
+        BoundedPipe pipe = new BoundedPipe(2);
+
+        Future<Void> written = write(pipe, source);
+        try {
+            readFully(pipe.getInputStream());
+            fail("A response cut short must not read as complete");
+        } catch (IOException e) {
+            assertSame(failure, e.getCause());
+        }
+        try {
+            written.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void closingTheReaderStopsTheWriter() throws Exception {
+        CountingStream source = new CountingStream(Long.MAX_VALUE);
+        BoundedPipe pipe = new BoundedPipe(2);
+
+        Future<Void> written = write(pipe, source);
+        InputStream in = pipe.getInputStream();
+        assertTrue(in.read(new byte[10]) > 0);
+        in.close();
+
+        // The writer ends without failing, having read little more than the pipe holds
+        assertNull(written.get(5, TimeUnit.SECONDS));
+        assertTrue(source.mRead.get() <= 5 * CHUNK_SIZE);
+    }
+
+    private Future<Void> write(final BoundedPipe pipe, final InputStream in) {
+        return mWriter.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                pipe.writeFrom(in);
+                return null;
+            }
+        });
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3000];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A stream of the given number of bytes, counting the bytes read from it.
+     */
+    private static class CountingStream extends InputStream {
+
+        final AtomicLong mRead = new AtomicLong();
+        private final long mLength;
+
+        CountingStream(long length) {
+            mLength = length;
+        }
+
+        @Override
+        public int read() {
+            return mRead.get() < mLength ? (int) (mRead.getAndIncrement() & 0x7f) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long left = mLength - mRead.get();
+            if (left <= 0) {
+                return -1;
+            }
+            int count = (int) Math.min(len, left);
+            mRead.addAndGet(count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.android.newsfeed;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toMillis(1);
+
+    private long mNow = 1000 * SECOND;
+    private CircuitBreaker mBreaker;
+
+    @Before
+    public void setUp() {
+        mBreaker = new CircuitBreaker(new CircuitBreaker.Clock() {
+            @Override
+            public long elapsedRealtime() {
+                return mNow;
+            }
+        });
+    }
+
+    @Test
+    public void opensAfterThreeFailuresInARow() {
+        fail(0);
+        fail(0);
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onFailure(0);
+        assertFalse(mBreaker.allowRequest());
+
+        mNow += 29 * SECOND;
+        assertFalse(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void successResetsTheFailureCount() {
+        fail(0);
+        fail(0);
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onSuccess();
+        fail(0);
+        fail(0);
+        assertTrue(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void letsASingleTrialThroughAfterTheBreak() {
+        open();
+        mNow += 30 * SECOND;
+        assertTrue(mBreaker.allowRequest());
+        assertFalse(mBreaker.allowRequest());
+
+        mBreaker.onSuccess();
+        assertTrue(mBreaker.allowRequest());
+        assertTrue(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void failedTrialDoublesTheBreak() {
+        open();
+        mNow += 30 * SECOND;
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onFailure(0);
+
+        mNow += 59 * SECOND;
+        assertFalse(mBreaker.allowRequest());
+        mNow += SECOND;
+        assertTrue(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void abandonedTrialLetsAnotherThrough() {
+        open();
+        mNow += 30 * SECOND;
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onAbandoned();
+        assertTrue(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void retryAfterOpensForExactlyThatLong() {
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onFailure(2 * SECOND);
+        assertFalse(mBreaker.allowRequest());
+
+        // Not the 30 s a run of failures opens it for
+        mNow += 2 * SECOND;
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onSuccess();
+    }
+
+    @Test
+    public void retryAfterOnlyExtendsALongerBreak() {
+        open();
+        assertFalse(mBreaker.allowRequest());
+        mBreaker.onFailure(5 * SECOND);
+
+        mNow += 29 * SECOND;
+        assertFalse(mBreaker.allowRequest());
+        mNow += SECOND;
+        assertTrue(mBreaker.allowRequest());
+    }
+
+    @Test
+    public void requestMadeBeforeTheBreakDoesNotExtendIt() {
+        assertTrue(mBreaker.allowRequest());
+        open();
+        // The request allowed before the circuit opened fails after it did
+        mBreaker.onFailure(0);
+
+        mNow += 30 * SECOND;
+        assertTrue(mBreaker.allowRequest());
+    }
+
+    private void fail(long retryAfterMillis) {
+        assertTrue(mBreaker.allowRequest());
+        mBreaker.onFailure(retryAfterMillis);
+    }
+
+    private void open() {
+        for (int i = 0; i < 3; i++) {
+            fail(0);
+        }
+        assertFalse(mBreaker.allowRequest());
+    }
+}
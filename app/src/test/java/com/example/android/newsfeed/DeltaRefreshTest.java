@@ -0,0 +1,96 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeltaRefreshTest {
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void newArticlesComeFirstWithoutDuplicates() {
+        ArticleCache.Entry cached = entry(1000L, article("b", 20), article("a", 10));
+        ArticleCache.Entry delta = entry(2000L, article("c", 30), article("b", 20));
+
+        ArticleCache.Entry merged = DeltaRefresh.merge(cached, delta, 10);
+
+        assertEquals(Arrays.asList("c", "b", "a"), urls(merged.getArticles()));
+    }
+
+    @Test
+    public void mergedArticlesAreTrimmedToTheLimit() {
+        ArticleCache.Entry cached = entry(1000L, article("b", 20), article("a", 10));
+        ArticleCache.Entry delta = entry(2000L, article("d", 40), article("c", 30));
+
+        ArticleCache.Entry merged = DeltaRefresh.merge(cached, delta, 3);
+
+        assertEquals(Arrays.asList("d", "c", "b"), urls(merged.getArticles()));
+    }
+
+    @Test
+    public void mergedEntryKeepsTheTimeOfTheFullFetch() {
+        ArticleCache.Entry cached = new ArticleCache.Entry(
+                Collections.singletonList(article("a", 10)), 1000L, "\"v1\"", "Mon");
+        ArticleCache.Entry delta = entry(2000L, article("b", 20));
+
+        ArticleCache.Entry merged = DeltaRefresh.merge(cached, delta, 10);
+
+        assertEquals(2000L, merged.getFetchedAt());
+        assertEquals(1000L, merged.getFullFetchedAt());
+        assertNull(merged.getETag());
+        assertNull(merged.getLastModified());
+    }
+
+    @Test
+    public void runOfDeltasEndsInFullFetchAfterADay() {
+        long fullFetchedAt = 1000L;
+        ArticleCache.Entry entry = entry(fullFetchedAt, article("a", 0));
+
+        // Refresh every hour, each one fetching a single new article
+        for (int hour = 1; hour <= 24; hour++) {
+            long now = fullFetchedAt + hour * HOUR_MILLIS;
+            assertFalse("hour " + hour, DeltaRefresh.isTooOld(entry, now));
+            entry = DeltaRefresh.merge(entry, entry(now, article("n" + hour, hour)), 100);
+        }
+
+        assertTrue(DeltaRefresh.isTooOld(entry, fullFetchedAt + 25 * HOUR_MILLIS));
+    }
+
+    @Test
+    public void revalidatedEntryCountsAsFetchedInFull() {
+        ArticleCache.Entry entry = entry(1000L, article("a", 0));
+        long now = 1000L + 2 * TimeUnit.DAYS.toMillis(1);
+        assertTrue(DeltaRefresh.isTooOld(entry, now));
+
+        ArticleCache.Entry revalidated = entry.revalidated(now, null, null);
+
+        assertEquals(now, revalidated.getFullFetchedAt());
+        assertFalse(DeltaRefresh.isTooOld(revalidated, now));
+    }
+
+    private static ArticleCache.Entry entry(long fetchedAt, Article... articles) {
+        return new ArticleCache.Entry(Arrays.asList(articles), fetchedAt, null, null);
+    }
+
+    private static Article article(String url, long publishTime) {
+        return new Article("Title", "Sport", null, publishTime, url);
+    }
+
+    private static List<String> urls(List<Article> articles) {
+        List<String> urls = new ArrayList<>();
+        for (Article article : articles) {
+            urls.add(article.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.android.newsfeed;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning a search response into articles, for responses of 10, 100 and 1000
+ * results: parsing the bytes alone, streamed or, as before {@link ArticleParser}, read into
+ * a string and a {@link JSONObject} tree first, and the whole fetch path replayed from a
+ * local {@link MockServer}, gzip and keep-alive included, or revalidated with a 304.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FeedBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int results;
+
+    private byte[] mResponse;
+    private MockServer mServer;
+    private String mRequestUrl;
+
+    // Answers every request with a 304, for revalidating the entry of the first fetch
+    private MockServer mNotModifiedServer;
+    private String mNotModifiedRequestUrl;
+    private ArticleCache.Entry mCached;
+
+    @Setup
+    public void setUp() throws IOException {
+        mResponse = Fixtures.search(results);
+        mServer = new MockServer();
+        mServer.setDefault(new MockServer.Response(200).body(mResponse).gzip());
+        mRequestUrl = mServer.url("/search?q=sport&page-size=" + results);
+
+        mNotModifiedServer = new MockServer();
+        mNotModifiedServer.setDefault(new MockServer.Response(304));
+        mNotModifiedRequestUrl = mNotModifiedServer.url("/search?q=sport&page-size=" + results);
+        mCached = fetch().getEntry();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mServer.close();
+        mNotModifiedServer.close();
+    }
+
+    @Benchmark
+    public List<Article> parse() throws IOException {
+        ArticleParser parser = new ArticleParser(null, null);
+        parser.parse(new ByteArrayInputStream(mResponse));
+        return parser.getArticles();
+    }
+
+    /**
+     * Parses the response as the app did before {@link ArticleParser}: the whole response
+     * read into a string line by line, then into a {@link JSONObject} tree, then into the
+     * same articles.
+     */
+    @Benchmark
+    public List<Article> parseTree() throws IOException, JSONException {
+        String json = readFromStream(new ByteArrayInputStream(mResponse));
+        JSONArray results = new JSONObject(json).getJSONObject("response")
+                .getJSONArray("results");
+        List<Article> articles = new ArrayList<>(results.length());
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            JSONObject fields = result.optJSONObject("fields");
+            articles.add(new Article(result.getString("webTitle"),
+                    result.optString("sectionName", null),
+                    fields != null ? fields.optString("byline", null) : null,
+                    PublishDateFormatter.parse(result.optString("webPublicationDate", null)),
+                    Article.encodeUrl(result.getString("webUrl")),
+                    fields != null ? fields.optString("thumbnail", null) : null,
+                    fields != null ? fields.optString("trailText", null) : null));
+        }
+        return articles;
+    }
+
+    private static String readFromStream(InputStream inputStream) throws IOException {
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+        return output.toString();
+    }
+
+    @Benchmark
+    public FetchResult fetch() {
+        FetchResult result = QueryUtils.fetchNewsData(mRequestUrl, null, null, null);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Fetch failed with " + result.getStatus());
+        }
+        return result;
+    }
+
+    /**
+     * Revalidates the articles of a fetch against a server answering that they haven't
+     * changed, for comparing with {@link #fetch}.
+     */
+    @Benchmark
+    public FetchResult fetchNotModified() {
+        FetchResult result = QueryUtils.fetchNewsData(mNotModifiedRequestUrl, mCached, null,
+                null);
+        if (result.getEntry().getArticles() != mCached.getArticles()) {
+            throw new IllegalStateException("Revalidation failed with " + result.getStatus());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.android.newsfeed;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link Fixtures} reads the Guardian search responses kept under {@code fixtures/} in the
+ * test resources, holding 10, 100 and 1000 results.
+ */
+final class Fixtures {
+
+    /** Result counts there is a search response fixture for */
+    static final int[] RESULT_COUNTS = {10, 100, 1000};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns the bytes of the search response holding the given number of results.
+     */
+    static byte[] search(int results) {
+        return read("fixtures/search-" + results + ".json");
+    }
+
+    static byte[] read(String name) {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No fixture " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
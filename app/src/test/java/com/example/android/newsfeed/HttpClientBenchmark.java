@@ -0,0 +1,65 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a refresh of a 10 result feed against a local {@link MockServer}, request and
+ * whole response, with the connection kept alive for the next refresh, as
+ * {@link HttpClient} does, and with a new connection made for every refresh, as the app
+ * did before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HttpClientBenchmark {
+
+    @Param({"true", "false"})
+    public boolean keepAlive;
+
+    private MockServer mServer;
+    private URL mUrl;
+    private Map<String, String> mHeaders;
+    private final byte[] mBuffer = new byte[8192];
+
+    @Setup
+    public void setUp() throws IOException {
+        mServer = new MockServer();
+        mServer.setDefault(new MockServer.Response(200).body(Fixtures.search(10)).gzip());
+        mUrl = new URL(mServer.url("/search?q=sport"));
+        // Asking for the connection to be closed keeps it out of the pool
+        mHeaders = keepAlive ? null : Collections.singletonMap("Connection", "close");
+    }
+
+    @TearDown
+    public void tearDown() {
+        mServer.close();
+    }
+
+    @Benchmark
+    public int refresh() throws IOException {
+        int total = 0;
+        try (HttpClient.Response response = HttpClient.getInstance().get(mUrl, mHeaders, null)) {
+            InputStream body = response.getBody();
+            int count;
+            while ((count = body.read(mBuffer)) != -1) {
+                total += count;
+            }
+        }
+        return total;
+    }
+}
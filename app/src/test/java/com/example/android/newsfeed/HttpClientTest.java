@@ -0,0 +1,180 @@
+package com.example.android.newsfeed;
+
+import android.os.CancellationSignal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpClientTest {
+
+    private MockServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockServer();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+        HttpClient.getInstance().setTimeouts(HttpClient.DEFAULT_CONNECT_TIMEOUT_MILLIS,
+                HttpClient.DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void sequentialRequestsReuseTheConnection() throws IOException {
+        mServer.setDefault(new MockServer.Response(200).body(Fixtures.search(10)).gzip());
+
+        for (int i = 0; i < 3; i++) {
+            try (HttpClient.Response response = get()) {
+                assertEquals(200, response.getCode());
+                readFully(response.getBody());
+            }
+        }
+
+        assertEquals(3, mServer.getRequests().size());
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void closingAnUnreadResponseKeepsTheConnection() throws IOException {
+        mServer.setDefault(new MockServer.Response(200).body(Fixtures.search(10)));
+
+        // Closing drains the body, so the next request can go out on the same connection
+        get().close();
+        get().close();
+
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void errorResponsesKeepTheConnection() throws IOException {
+        mServer.enqueue(new MockServer.Response(503).body("Busy".getBytes("UTF-8")));
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)));
+
+        try (HttpClient.Response response = get()) {
+            assertEquals(503, response.getCode());
+        }
+        try (HttpClient.Response response = get()) {
+            assertEquals(200, response.getCode());
+        }
+
+        assertEquals(1, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void connectionCloseOpensAConnectionPerRequest() throws IOException {
+        mServer.setDefault(new MockServer.Response(200).body(Fixtures.search(10)).gzip());
+
+        // As HttpClientBenchmark does to measure refreshes without keep-alive
+        for (int i = 0; i < 3; i++) {
+            try (HttpClient.Response response = HttpClient.getInstance().get(
+                    new URL(mServer.url("/search")),
+                    Collections.singletonMap("Connection", "close"), null)) {
+                readFully(response.getBody());
+            }
+        }
+
+        assertEquals(3, mServer.getConnectionCount());
+    }
+
+    @Test
+    public void cancelAbortsAStalledRequest() throws Exception {
+        mServer.setDefault(new MockServer.Response(200).body(Fixtures.search(10)).delay(5000));
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> request = executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    try (HttpClient.Response response = HttpClient.getInstance().get(
+                            new URL(mServer.url("/search")), null, cancellationSignal)) {
+                        return response.getCode();
+                    }
+                }
+            });
+            while (mServer.getRequests().isEmpty()) {
+                Thread.sleep(5);
+            }
+
+            long start = System.nanoTime();
+            cancellationSignal.cancel();
+            try {
+                request.get(1, TimeUnit.SECONDS);
+                fail("The request went on after it was canceled");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue("Aborted after " + elapsedMillis + "ms", elapsedMillis < 500);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requestTimesOutAfterItsOwnReadTimeout() throws IOException {
+        mServer.setDefault(new MockServer.Response(200).body(Fixtures.search(10)).delay(2000));
+
+        long start = System.nanoTime();
+        try {
+            HttpClient.getInstance().get(new URL(mServer.url("/search")), null, null,
+                    HttpClient.DEFAULT_CONNECT_TIMEOUT_MILLIS, 200).close();
+            fail("The response took longer than the read timeout");
+        } catch (SocketTimeoutException expected) {
+            assertTimedOutSince(start);
+        }
+    }
+
+    @Test
+    public void setTimeoutsAppliesToLaterRequests() throws IOException {
+        mServer.setDefault(new MockServer.Response(200).body(Fixtures.search(10)).delay(2000));
+        HttpClient.getInstance().setTimeouts(HttpClient.DEFAULT_CONNECT_TIMEOUT_MILLIS, 200);
+
+        long start = System.nanoTime();
+        try {
+            get().close();
+            fail("The response took longer than the read timeout");
+        } catch (SocketTimeoutException expected) {
+            assertTimedOutSince(start);
+        }
+    }
+
+    /**
+     * Asserts that a request made at the given time timed out well before the server's
+     * delayed response came.
+     */
+    private static void assertTimedOutSince(long startNanos) {
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        assertTrue("Timed out after " + elapsedMillis + "ms",
+                elapsedMillis >= 200 && elapsedMillis < 1500);
+    }
+
+    private HttpClient.Response get() throws IOException {
+        return HttpClient.getInstance().get(new URL(mServer.url("/search")), null, null);
+    }
+
+    private static void readFully(InputStream in) throws IOException {
+        byte[] buffer = new byte[4096];
+        //noinspection StatementWithEmptyBody
+        while (in.read(buffer) != -1) {
+        }
+    }
+}
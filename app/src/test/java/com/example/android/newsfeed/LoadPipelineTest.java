@@ -0,0 +1,113 @@
+package com.example.android.newsfeed;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadPipelineTest {
+
+    /** Threads of the I/O pool, each kept busy until released */
+    private static final int IO_THREADS = 4;
+
+    private final LoadPipeline mPipeline = LoadPipeline.getInstance();
+    private final List<CountDownLatch> mReleases = new ArrayList<>();
+    private final BlockingQueue<String> mStarted = new LinkedBlockingQueue<>();
+
+    @After
+    public void tearDown() {
+        for (CountDownLatch release : mReleases) {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void queuedWorkIsTakenByPriority() throws Exception {
+        occupyIoThreads();
+        execute("background", LoadPipeline.Priority.BACKGROUND);
+        execute("prefetch", LoadPipeline.Priority.PREFETCH);
+        execute("visible", LoadPipeline.Priority.VISIBLE);
+
+        assertEquals(Arrays.asList("visible", "prefetch", "background"), takeOneByOne(3));
+    }
+
+    @Test
+    public void raisedWorkIsTakenBeforeWorkOfItsOldPriority() throws Exception {
+        occupyIoThreads();
+        Future<?> raised = execute("raised", LoadPipeline.Priority.PREFETCH);
+        execute("prefetch", LoadPipeline.Priority.PREFETCH);
+        execute("visible", LoadPipeline.Priority.VISIBLE);
+
+        mPipeline.setIoPriority(raised, LoadPipeline.Priority.VISIBLE);
+
+        // Still in submission order among work of its new priority
+        assertEquals(Arrays.asList("raised", "visible", "prefetch"), takeOneByOne(3));
+    }
+
+    @Test
+    public void raisingStartedWorkLeavesItAlone() throws Exception {
+        Future<?> started = execute("started", LoadPipeline.Priority.PREFETCH);
+        assertEquals("started", mStarted.poll(5, TimeUnit.SECONDS));
+
+        mPipeline.setIoPriority(started, LoadPipeline.Priority.VISIBLE);
+
+        mReleases.get(0).countDown();
+        started.get(5, TimeUnit.SECONDS);
+        assertTrue(mStarted.isEmpty());
+    }
+
+    /**
+     * Keeps every I/O thread busy, so the work executed next waits in the queue.
+     */
+    private void occupyIoThreads() throws InterruptedException {
+        for (int i = 0; i < IO_THREADS; i++) {
+            execute("busy", LoadPipeline.Priority.VISIBLE);
+        }
+        for (int i = 0; i < IO_THREADS; i++) {
+            assertEquals("busy", mStarted.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Runs work recording its name once started, and then holding its thread until
+     * released, in the order executed.
+     */
+    private Future<?> execute(final String name, LoadPipeline.Priority priority) {
+        final CountDownLatch release = new CountDownLatch(1);
+        mReleases.add(release);
+        return mPipeline.executeIo(priority, new Runnable() {
+            @Override
+            public void run() {
+                mStarted.add(name);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    /**
+     * Frees the busy I/O threads one at a time, each taking a single queued task and then
+     * holding on to it, returning the names of the queued work in the order it was taken.
+     */
+    private List<String> takeOneByOne(int count) throws InterruptedException {
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            mReleases.get(i).countDown();
+            order.add(mStarted.poll(5, TimeUnit.SECONDS));
+        }
+        return order;
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.android.newsfeed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@link MockServer} stands in for the Guardian API on the loopback interface, so the fetch
+ * path runs over real sockets against recorded responses.  Queued responses are served in
+ * order, then the default one, and every request is recorded.
+ */
+final class MockServer implements Closeable {
+
+    /**
+     * A canned response.
+     */
+    static final class Response {
+
+        final int mCode;
+        final Map<String, String> mHeaders = new LinkedHashMap<>();
+        byte[] mBody = new byte[0];
+        boolean mGzip;
+        long mDelayMillis;
+
+        // Body compressed once, as the same response may be served many times
+        private byte[] mGzippedBody;
+
+        Response(int code) {
+            mCode = code;
+        }
+
+        Response body(byte[] body) {
+            mBody = body;
+            return this;
+        }
+
+        Response header(String name, String value) {
+            mHeaders.put(name, value);
+            return this;
+        }
+
+        /** Compresses the body if the request accepts gzip */
+        Response gzip() {
+            mGzip = true;
+            return this;
+        }
+
+        synchronized byte[] gzippedBody() throws IOException {
+            if (mGzippedBody == null) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(mBody);
+                }
+                mGzippedBody = compressed.toByteArray();
+            }
+            return mGzippedBody;
+        }
+
+        /** Waits before sending the response, as a slow server would */
+        Response delay(long millis) {
+            mDelayMillis = millis;
+            return this;
+        }
+    }
+
+    /**
+     * A request the server received.
+     */
+    static final class Request {
+
+        final String mPath;
+        final Map<String, String> mHeaders;
+
+        Request(String path, Map<String, String> headers) {
+            mPath = path;
+            mHeaders = headers;
+        }
+
+        String getHeader(String name) {
+            return mHeaders.get(name.toLowerCase());
+        }
+    }
+
+    static {
+        // Without it, small responses wait out the client's delayed ACK, 40 ms on Linux
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final ConcurrentLinkedQueue<Response> mQueue = new ConcurrentLinkedQueue<>();
+    private volatile Response mDefault = new Response(404);
+    private final List<Request> mRequests = Collections.synchronizedList(new ArrayList<Request>());
+    private final Set<Integer> mClientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+    private final AtomicLong mBodyBytesServed = new AtomicLong();
+
+    MockServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serve(exchange);
+            }
+        });
+        mServer.start();
+    }
+
+    /**
+     * Returns the URL of the given path and query on this server.
+     */
+    String url(String pathAndQuery) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + pathAndQuery;
+    }
+
+    void enqueue(Response response) {
+        mQueue.add(response);
+    }
+
+    /**
+     * Sets the response served once the queue is empty.
+     */
+    void setDefault(Response response) {
+        mDefault = response;
+    }
+
+    List<Request> getRequests() {
+        synchronized (mRequests) {
+            return new ArrayList<>(mRequests);
+        }
+    }
+
+    /**
+     * Returns the number of connections requests were received on.
+     */
+    int getConnectionCount() {
+        return mClientPorts.size();
+    }
+
+    /**
+     * Returns the number of response body bytes sent so far, as sent on the wire, so after
+     * compression.
+     */
+    long getBodyBytesServed() {
+        return mBodyBytesServed.get();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            headers.put(header.getKey().toLowerCase(), header.getValue().get(0));
+        }
+        mRequests.add(new Request(exchange.getRequestURI().toString(), headers));
+        mClientPorts.add(exchange.getRemoteAddress().getPort());
+
+        Response response = mQueue.poll();
+        if (response == null) {
+            response = mDefault;
+        }
+        if (response.mDelayMillis > 0) {
+            try {
+                Thread.sleep(response.mDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        byte[] body = response.mBody;
+        String acceptEncoding = headers.get("accept-encoding");
+        if (response.mGzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = response.gzippedBody();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        for (Map.Entry<String, String> header : response.mHeaders.entrySet()) {
+            exchange.getResponseHeaders().set(header.getKey(), header.getValue());
+        }
+
+        // A 304 has no body, and a length of -1 says so
+        boolean noBody = response.mCode == 304 || body.length == 0;
+        exchange.sendResponseHeaders(response.mCode, noBody ? -1 : body.length);
+        if (!noBody) {
+            // Counted first, so a client that got the body always sees it counted
+            mBodyBytesServed.addAndGet(body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    @Override
+    public void close() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+}
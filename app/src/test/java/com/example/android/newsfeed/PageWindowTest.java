@@ -0,0 +1,100 @@
+package com.example.android.newsfeed;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PageWindowTest {
+
+    @Test
+    public void evictsThePageAtTheOppositeEnd() {
+        PageWindow window = new PageWindow(30);
+        for (int page = 1; page <= 4; page++) {
+            window.put(page, page(page, PageWindow.PAGE_SIZE));
+        }
+        assertEquals(2, window.getFirstPage());
+        assertEquals(4, window.getLastPage());
+        assertEquals(30, window.getArticles().size());
+
+        // Scrolling back up evicts from the bottom
+        window.put(1, page(1, PageWindow.PAGE_SIZE));
+        assertEquals(1, window.getFirstPage());
+        assertEquals(3, window.getLastPage());
+        assertFalse(window.contains(4));
+    }
+
+    @Test
+    public void keepsAtLeastThreePages() {
+        PageWindow window = new PageWindow(5);
+        for (int page = 1; page <= 3; page++) {
+            window.put(page, page(page, PageWindow.PAGE_SIZE));
+        }
+        assertTrue(window.contains(1));
+        assertEquals(3, window.getLastPage());
+    }
+
+    @Test
+    public void ignoresPagesNotAdjacentToTheWindow() {
+        PageWindow window = new PageWindow(50);
+        window.put(1, page(1, PageWindow.PAGE_SIZE));
+        window.put(3, page(3, PageWindow.PAGE_SIZE));
+        assertFalse(window.contains(3));
+        assertEquals(1, window.getLastPage());
+    }
+
+    @Test
+    public void articlesAreInPageOrder() {
+        PageWindow window = new PageWindow(50);
+        window.put(2, page(2, PageWindow.PAGE_SIZE));
+        window.put(1, page(1, PageWindow.PAGE_SIZE));
+        List<Article> articles = window.getArticles();
+        assertEquals("https://a/1/0", articles.get(0).getUrl());
+        assertEquals("https://a/2/9", articles.get(articles.size() - 1).getUrl());
+    }
+
+    @Test
+    public void prefetchesTheNextPageNearTheBottom() {
+        PageWindow window = new PageWindow(50);
+        assertEquals(0, window.pageToPrefetch(0, 5));
+
+        window.put(1, page(1, PageWindow.PAGE_SIZE));
+        // Rows 0 to 3 are visible, more than the prefetch distance from the end
+        assertEquals(0, window.pageToPrefetch(0, 4));
+        assertEquals(2, window.pageToPrefetch(1, 4));
+    }
+
+    @Test
+    public void prefetchesThePreviousPageNearTheTop() {
+        PageWindow window = new PageWindow(30);
+        for (int page = 1; page <= 4; page++) {
+            window.put(page, page(page, PageWindow.PAGE_SIZE));
+        }
+        assertEquals(1, window.pageToPrefetch(0, 4));
+        assertEquals(0, window.pageToPrefetch(10, 4));
+    }
+
+    @Test
+    public void stopsAtAShortLastPage() {
+        PageWindow window = new PageWindow(50);
+        window.put(1, page(1, PageWindow.PAGE_SIZE));
+        window.put(2, page(2, 3));
+        assertEquals(0, window.pageToPrefetch(9, 4));
+
+        // The short page was only the first articles of a page still loading
+        window.put(2, page(2, PageWindow.PAGE_SIZE));
+        assertEquals(3, window.pageToPrefetch(16, 4));
+    }
+
+    private static List<Article> page(int page, int size) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            articles.add(new Article("Title", "Sport", null, 0, "https://a/" + page + "/" + i));
+        }
+        return articles;
+    }
+}
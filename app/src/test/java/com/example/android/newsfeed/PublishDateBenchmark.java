@@ -0,0 +1,91 @@
+package com.example.android.newsfeed;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing the publication dates of the 1000 result fixture, and formatting them
+ * for the list as a row bind does, once the formatter's caches are warm.  The bind is also
+ * measured as it was before {@link PublishDateFormatter}, parsing the date string and
+ * formatting it with new {@link SimpleDateFormat}s every time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PublishDateBenchmark {
+
+    private String[] mDates;
+    private long[] mTimes;
+    private long mNow;
+    private PublishDateFormatter mFormatter;
+    private int mNext;
+
+    @Setup
+    public void setUp() throws IOException {
+        ArticleParser parser = new ArticleParser(null, null);
+        parser.parse(new ByteArrayInputStream(Fixtures.search(1000)));
+        List<Article> articles = parser.getArticles();
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        mDates = new String[articles.size()];
+        mTimes = new long[articles.size()];
+        for (int i = 0; i < mTimes.length; i++) {
+            mTimes[i] = articles.get(i).getPublishTime();
+            mDates[i] = format.format(new Date(mTimes[i]));
+        }
+
+        // Half an hour after the newest article, so the rows span relative times and dates
+        mNow = mTimes[0] + TimeUnit.MINUTES.toMillis(30);
+        mFormatter = new PublishDateFormatter("Just now", "%dm ago", "%dh ago");
+    }
+
+    @Benchmark
+    public long parse() {
+        return PublishDateFormatter.parse(mDates[next()]);
+    }
+
+    @Benchmark
+    public String format() {
+        return mFormatter.format(mTimes[next()], mNow);
+    }
+
+    /**
+     * Formats a date as a row bind did before {@link PublishDateFormatter}.
+     */
+    @Benchmark
+    public String formatSimpleDateFormat() {
+        String date = mDates[next()];
+        SimpleDateFormat simpleDateFormat =
+                new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        simpleDateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            Date dateObject = simpleDateFormat.parse(date);
+            simpleDateFormat = new SimpleDateFormat("LLL dd, yyyy", Locale.US);
+            return simpleDateFormat.format(dateObject);
+        } catch (ParseException e) {
+            return "";
+        }
+    }
+
+    private int next() {
+        int i = mNext;
+        mNext = i + 1 == mTimes.length ? 0 : i + 1;
+        return i;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.android.newsfeed;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class PublishDateFormatterTest {
+
+    private static final long NOW = PublishDateFormatter.parse("2018-07-14T21:05:12Z");
+
+    private TimeZone mDefaultTimeZone;
+    private PublishDateFormatter mFormatter;
+
+    @Before
+    public void setUp() {
+        mDefaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        mFormatter = new PublishDateFormatter("Just now", "%dm ago", "%dh ago");
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    @Test
+    public void parseMatchesSimpleDateFormat() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String[] dates = {
+                "1970-01-01T00:00:00Z", "2018-07-14T21:05:12Z", "2000-02-29T23:59:59Z",
+                "2016-02-29T12:00:00Z", "2019-03-01T00:00:00Z", "2099-12-31T23:59:59Z",
+                "1969-12-31T23:59:59Z", "1900-03-01T00:00:00Z"
+        };
+        for (String date : dates) {
+            assertEquals(date, format.parse(date).getTime(), PublishDateFormatter.parse(date));
+        }
+    }
+
+    @Test
+    public void parseRejectsMalformedDates() {
+        String[] dates = {
+                null, "", "2018-07-14", "2018-07-14T21:05:12", "2018-07-14T21:05:12+01:00",
+                "2018/07/14T21:05:12Z", "2018-13-14T21:05:12Z", "2018-07-00T21:05:12Z",
+                "2018-07-14T24:05:12Z", "2018-07-14T21:60:12Z", "2018-07-1xT21:05:12Z",
+                "2018-07-14 21:05:12Z"
+        };
+        for (String date : dates) {
+            assertEquals(date, PublishDateFormatter.UNKNOWN, PublishDateFormatter.parse(date));
+        }
+    }
+
+    @Test
+    public void formatsRecentTimesRelatively() {
+        assertEquals("Just now", mFormatter.format(NOW - TimeUnit.SECONDS.toMillis(59), NOW));
+        assertEquals("1m ago", mFormatter.format(NOW - TimeUnit.SECONDS.toMillis(60), NOW));
+        assertEquals("59m ago", mFormatter.format(NOW - TimeUnit.MINUTES.toMillis(59), NOW));
+        assertEquals("1h ago", mFormatter.format(NOW - TimeUnit.MINUTES.toMillis(60), NOW));
+        assertEquals("23h ago", mFormatter.format(NOW - TimeUnit.HOURS.toMillis(23), NOW));
+    }
+
+    @Test
+    public void formatsOlderTimesAsDates() {
+        assertEquals("Jul 13, 2018", mFormatter.format(NOW - TimeUnit.HOURS.toMillis(24), NOW));
+        assertEquals("Feb 29, 2016",
+                mFormatter.format(PublishDateFormatter.parse("2016-02-29T12:00:00Z"), NOW));
+        assertEquals("", mFormatter.format(PublishDateFormatter.UNKNOWN, NOW));
+    }
+
+    @Test
+    public void servesCachedStrings() {
+        long minutesAgo = NOW - TimeUnit.MINUTES.toMillis(5);
+        assertSame(mFormatter.format(minutesAgo, NOW),
+                mFormatter.format(minutesAgo - 1000, NOW));
+
+        long daysAgo = NOW - TimeUnit.DAYS.toMillis(3);
+        String date = mFormatter.format(daysAgo, NOW);
+        assertSame(date, mFormatter.format(daysAgo + TimeUnit.HOURS.toMillis(1), NOW));
+    }
+
+    @Test
+    public void daysSharingASlotAreFormattedApart() {
+        // 256 days apart, the size of the cache, so both fall in the same slot
+        long recent = NOW - TimeUnit.DAYS.toMillis(2);
+        long older = recent - TimeUnit.DAYS.toMillis(256);
+        String recentDate = mFormatter.format(recent, NOW);
+        assertEquals("Oct 29, 2017", mFormatter.format(older, NOW));
+        assertEquals(recentDate, mFormatter.format(recent, NOW));
+        assertEquals("Jul 12, 2018", recentDate);
+    }
+}
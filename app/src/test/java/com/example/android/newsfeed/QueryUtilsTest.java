@@ -0,0 +1,204 @@
+package com.example.android.newsfeed;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class QueryUtilsTest {
+
+    private MockServer mServer;
+    private String mRequestUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockServer();
+        mRequestUrl = mServer.url("/search?q=sport");
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+        // The process-wide breaker never sees time pass on the JVM, so close it again
+        CircuitBreaker.getInstance().onSuccess();
+    }
+
+    @Test
+    public void fetchParsesTheResponseAndKeepsItsValidators() {
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10))
+                .header("ETag", "\"v1\"")
+                .header("Last-Modified", "Sat, 14 Jul 2018 21:05:12 GMT"));
+
+        FetchResult result = QueryUtils.fetchNewsData(mRequestUrl, null, null, null);
+
+        assertTrue(result.isSuccess());
+        assertEquals(10, result.getEntry().getArticles().size());
+        assertEquals("\"v1\"", result.getEntry().getETag());
+        assertEquals("Sat, 14 Jul 2018 21:05:12 GMT", result.getEntry().getLastModified());
+        MockServer.Request request = mServer.getRequests().get(0);
+        assertNull(request.getHeader("If-None-Match"));
+        assertNull(request.getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    public void revalidationSendsTheCachedValidators() {
+        ArticleCache.Entry cached = new ArticleCache.Entry(Collections.<Article>emptyList(),
+                0, "\"v1\"", "Sat, 14 Jul 2018 21:05:12 GMT");
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)));
+
+        QueryUtils.fetchNewsData(mRequestUrl, cached, null, null);
+
+        MockServer.Request request = mServer.getRequests().get(0);
+        assertEquals("\"v1\"", request.getHeader("If-None-Match"));
+        assertEquals("Sat, 14 Jul 2018 21:05:12 GMT", request.getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    public void notModifiedReusesTheCachedArticles() {
+        Article article = new Article("Title", "Sport", null, 0, "https://a/1");
+        ArticleCache.Entry cached = new ArticleCache.Entry(Collections.singletonList(article),
+                0, "\"v1\"", null);
+        mServer.enqueue(new MockServer.Response(304).header("ETag", "\"v2\""));
+
+        FetchResult result = QueryUtils.fetchNewsData(mRequestUrl, cached, null, null);
+
+        assertTrue(result.isSuccess());
+        assertSame(cached.getArticles(), result.getEntry().getArticles());
+        assertEquals("\"v2\"", result.getEntry().getETag());
+        assertTrue(result.getEntry().getFetchedAt() > 0);
+    }
+
+    @Test
+    public void notModifiedSendsNoBodyAndSkipsTheParse() {
+        final int[] parsedBatches = new int[1];
+        ArticleParser.ProgressListener progressListener = new ArticleParser.ProgressListener() {
+            @Override
+            public void onArticlesParsed(List<Article> articles) {
+                parsedBatches[0]++;
+            }
+        };
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(100)).gzip()
+                .header("ETag", "\"v1\""));
+        mServer.enqueue(new MockServer.Response(304));
+
+        FetchResult full = QueryUtils.fetchNewsData(mRequestUrl, null, null, progressListener);
+        long fullBytes = mServer.getBodyBytesServed();
+        int fullBatches = parsedBatches[0];
+        FetchResult revalidated = QueryUtils.fetchNewsData(mRequestUrl, full.getEntry(), null,
+                progressListener);
+
+        assertTrue(fullBytes > 0);
+        assertTrue(fullBatches > 0);
+        assertSame(full.getEntry().getArticles(), revalidated.getEntry().getArticles());
+        assertEquals("No body on the wire", fullBytes, mServer.getBodyBytesServed());
+        assertEquals("Nothing parsed", fullBatches, parsedBatches[0]);
+    }
+
+    @Test
+    public void gzipResponseIsDecoded() {
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(100)).gzip());
+
+        FetchResult result = QueryUtils.fetchNewsData(mRequestUrl, null, null, null);
+
+        assertEquals("gzip", mServer.getRequests().get(0).getHeader("Accept-Encoding"));
+        assertTrue(result.isSuccess());
+        assertEquals(100, result.getEntry().getArticles().size());
+    }
+
+    @Test
+    public void shortRetryAfterIsWaitedOutAndRetried() {
+        mServer.enqueue(new MockServer.Response(429).header("Retry-After", "1"));
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)));
+
+        long start = System.nanoTime();
+        FetchResult result = QueryUtils.fetchNewsData(mRequestUrl, null, null, null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(result.isSuccess());
+        assertEquals(2, mServer.getRequests().size());
+        assertTrue("Retried after " + elapsedMillis + "ms", elapsedMillis >= 1000);
+        assertTrue(CircuitBreaker.getInstance().allowRequest());
+        CircuitBreaker.getInstance().onAbandoned();
+    }
+
+    @Test
+    public void longRetryAfterStopsRequestsWithoutWaiting() {
+        mServer.enqueue(new MockServer.Response(429).header("Retry-After", "60"));
+
+        long start = System.nanoTime();
+        FetchResult result = QueryUtils.fetchNewsData(mRequestUrl, null, null, null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(FetchResult.Status.RATE_LIMITED, result.getStatus());
+        assertEquals(60000, result.getRetryAfterMillis());
+        assertTrue("Returned after " + elapsedMillis + "ms", elapsedMillis < 1000);
+
+        // Until the time asked for, no request is made at all
+        assertEquals(FetchResult.Status.CIRCUIT_OPEN,
+                QueryUtils.fetchNewsData(mRequestUrl, null, null, null).getStatus());
+        assertEquals(1, mServer.getRequests().size());
+    }
+
+    @Test
+    public void serverErrorsAreRetried() {
+        mServer.enqueue(new MockServer.Response(503));
+        mServer.enqueue(new MockServer.Response(503));
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)));
+
+        FetchResult result = QueryUtils.fetchNewsData(mRequestUrl, null, null, null);
+
+        assertTrue(result.isSuccess());
+        assertEquals(3, mServer.getRequests().size());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetried() {
+        mServer.enqueue(new MockServer.Response(401));
+
+        FetchResult result = QueryUtils.fetchNewsData(mRequestUrl, null, null, null);
+
+        assertFalse(result.isSuccess());
+        assertEquals(FetchResult.Status.HTTP_ERROR, result.getStatus());
+        assertEquals(1, mServer.getRequests().size());
+    }
+
+    @Test
+    public void articleBodyIsFetched() throws IOException {
+        mServer.enqueue(new MockServer.Response(200).body(("{\"response\":{\"status\":\"ok\","
+                + "\"content\":{\"fields\":{\"bodyText\":\"The text\"}}}}").getBytes("UTF-8")));
+
+        assertEquals("The text", QueryUtils.fetchArticleBody(mServer.url("/sport/a"), null));
+    }
+
+    @Test
+    public void articleBodyFailuresOpenTheCircuit() {
+        mServer.enqueue(new MockServer.Response(429).header("Retry-After", "60"));
+
+        assertNull(QueryUtils.fetchArticleBody(mServer.url("/sport/a"), null));
+
+        // Neither bodies nor feeds are requested until the time asked for
+        assertNull(QueryUtils.fetchArticleBody(mServer.url("/sport/b"), null));
+        assertEquals(FetchResult.Status.CIRCUIT_OPEN,
+                QueryUtils.fetchNewsData(mRequestUrl, null, null, null).getStatus());
+        assertEquals(1, mServer.getRequests().size());
+    }
+
+    @Test
+    public void articleBodyClientErrorLeavesTheCircuitClosed() {
+        mServer.enqueue(new MockServer.Response(404));
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)));
+
+        assertNull(QueryUtils.fetchArticleBody(mServer.url("/sport/gone"), null));
+        assertTrue(QueryUtils.fetchNewsData(mRequestUrl, null, null, null).isSuccess());
+    }
+}
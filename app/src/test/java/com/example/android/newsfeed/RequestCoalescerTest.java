@@ -0,0 +1,182 @@
+package com.example.android.newsfeed;
+
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestCoalescerTest {
+
+    private static final String KEY = "/search?q=sport";
+
+    private MockServer mServer;
+    private RequestCoalescer mCoalescer;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockServer();
+        mCoalescer = new RequestCoalescer();
+        mExecutor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+        mServer.close();
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequest() throws Exception {
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)).delay(500));
+
+        Future<FetchResult> owner = fetch();
+        awaitRequests(1);
+        Future<FetchResult> joined = fetch();
+
+        FetchResult result = owner.get(5, TimeUnit.SECONDS);
+        assertTrue(result.isSuccess());
+        assertSame(result, joined.get(5, TimeUnit.SECONDS));
+        assertEquals(1, mServer.getRequests().size());
+        assertEquals(2, mCoalescer.getRequestCount());
+        assertEquals(1, mCoalescer.getCollapsedCount());
+    }
+
+    @Test
+    public void interruptedCallerStopsWaitingWhileTheCallGoesOn() throws Exception {
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)).delay(1500));
+
+        Future<FetchResult> owner = fetch();
+        awaitRequests(1);
+        final Thread[] joinedThread = new Thread[1];
+        Future<FetchResult> joined = mExecutor.submit(new Callable<FetchResult>() {
+            @Override
+            public FetchResult call() {
+                joinedThread[0] = Thread.currentThread();
+                return mCoalescer.fetchNewsData(KEY, mServer.url(KEY), null, null, null);
+            }
+        });
+        while (mCoalescer.getCollapsedCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        joinedThread[0].interrupt();
+        FetchResult abandoned = joined.get(500, TimeUnit.MILLISECONDS);
+        assertFalse(abandoned.isSuccess());
+        assertFalse(owner.isDone());
+
+        assertTrue(owner.get(5, TimeUnit.SECONDS).isSuccess());
+        assertEquals(1, mServer.getRequests().size());
+    }
+
+    @Test
+    public void cancelingOwnerIsFreedWhileAJoinedCallerWaits() throws Exception {
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)).delay(1500));
+        CancellationSignal ownerSignal = new CancellationSignal();
+
+        Future<FetchResult> owner = fetch(ownerSignal);
+        awaitRequests(1);
+        Future<FetchResult> joined = fetch();
+        while (mCoalescer.getCollapsedCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        ownerSignal.cancel();
+        assertCanceled(owner);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Owner freed after " + elapsedMillis + "ms", elapsedMillis < 500);
+
+        // The call goes on for the caller still waiting
+        assertFalse(joined.isDone());
+        assertTrue(joined.get(5, TimeUnit.SECONDS).isSuccess());
+        assertEquals(1, mServer.getRequests().size());
+    }
+
+    @Test
+    public void lastCallerCancelingAbortsAStalledCall() throws Exception {
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)).delay(5000));
+        mServer.enqueue(new MockServer.Response(200).body(Fixtures.search(10)));
+        CancellationSignal ownerSignal = new CancellationSignal();
+        CancellationSignal joinedSignal = new CancellationSignal();
+
+        Future<FetchResult> owner = fetch(ownerSignal);
+        awaitRequests(1);
+        Future<FetchResult> joined = fetch(joinedSignal);
+        while (mCoalescer.getCollapsedCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        ownerSignal.cancel();
+        joinedSignal.cancel();
+        assertCanceled(owner);
+        assertCanceled(joined);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Callers freed after " + elapsedMillis + "ms", elapsedMillis < 500);
+
+        // The connection was torn down rather than left waiting on the stalled response,
+        // so the next fetch makes a call of its own straight away
+        start = System.nanoTime();
+        assertTrue(fetch().get(1, TimeUnit.SECONDS).isSuccess());
+        elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("Fetched again after " + elapsedMillis + "ms", elapsedMillis < 1000);
+        assertEquals(2, mServer.getRequests().size());
+    }
+
+    @Test
+    public void callerArrivingAfterTheCallIsNotJoined() throws Exception {
+        mServer.setDefault(new MockServer.Response(200).body(Fixtures.search(10)));
+
+        fetch().get(5, TimeUnit.SECONDS);
+        fetch().get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, mServer.getRequests().size());
+        assertEquals(0, mCoalescer.getCollapsedCount());
+    }
+
+    private Future<FetchResult> fetch() {
+        return fetch(null);
+    }
+
+    private Future<FetchResult> fetch(final CancellationSignal cancellationSignal) {
+        return mExecutor.submit(new Callable<FetchResult>() {
+            @Override
+            public FetchResult call() {
+                return mCoalescer.fetchNewsData(KEY, mServer.url(KEY), null,
+                        cancellationSignal, null);
+            }
+        });
+    }
+
+    private static void assertCanceled(Future<FetchResult> fetch) throws Exception {
+        try {
+            fetch.get(1, TimeUnit.SECONDS);
+            fail("The fetch went on after it was canceled");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof OperationCanceledException);
+        }
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        while (mServer.getRequests().size() < count) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+#!/bin/sh
+# Measures the launch of the feed to its first articles, cold and warm, on the connected
+# device.  Install the build to measure first, e.g. ./gradlew installRelease.
+#
+#   scripts/startup-benchmark.sh [runs]
+#
+# A cold launch force-stops the app first, so the launch starts the process.  A warm one
+# backs out of the feed and launches it again, in the process still running.  For each
+# launch the script prints the TotalTime of "am start -W", to the first frame, and the
+# time to the first articles, which MainActivity reports with reportFullyDrawn().  The
+# medians of each kind follow, and then the app's own cold and warm start histograms.
+
+set -e
+
+PACKAGE=com.example.android.newsfeed
+ACTIVITY=$PACKAGE/.MainActivity
+RUNS=${1:-10}
+
+# Milliseconds of the "Fully drawn" line logged since the launch, such as "+1s234ms"
+fully_drawn_millis() {
+    adb logcat -d -s ActivityManager:I ActivityTaskManager:I \
+        | grep "Fully drawn $ACTIVITY" | tail -n 1 \
+        | sed -E 's/.*: \+//; s/ .*//' \
+        | awk '{
+            s = 0; ms = $0
+            if (index(ms, "s") && index(ms, "s") < index(ms, "ms")) {
+                split(ms, parts, "s"); s = parts[1]; ms = substr(ms, index(ms, "s") + 1)
+            }
+            sub(/ms.*/, "", ms); print s * 1000 + ms
+        }'
+}
+
+# Launches the feed, waits for its first articles, and prints both times
+launch() {
+    adb logcat -c
+    total=$(adb shell am start -W -n $ACTIVITY | tr -d '\r' \
+        | sed -n 's/^TotalTime: //p')
+    drawn=""
+    for _ in 1 2 3 4 5 6 7 8 9 10 11 12 13 14 15 16 17 18 19 20; do
+        drawn=$(fully_drawn_millis)
+        [ -n "$drawn" ] && break
+        sleep 0.5
+    done
+    echo "$1 $total ${drawn:-?}"
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { if (NR) print v[int((NR + 1) / 2)]; else print "?" }'
+}
+
+adb shell cmd package compile -m speed -f $PACKAGE > /dev/null 2>&1 || true
+
+results=$(mktemp)
+trap 'rm -f "$results"' EXIT
+
+echo "launch first-frame-ms first-articles-ms"
+i=0
+while [ $i -lt "$RUNS" ]; do
+    adb shell am force-stop $PACKAGE
+    sleep 1
+    launch cold | tee -a "$results"
+
+    adb shell input keyevent KEYCODE_BACK
+    sleep 1
+    launch warm | tee -a "$results"
+    i=$((i + 1))
+done
+
+for kind in cold warm; do
+    frame=$(grep "^$kind " "$results" | awk '{ print $2 }' | median)
+    articles=$(grep "^$kind " "$results" | awk '$3 != "?" { print $3 }' | median)
+    echo "median $kind: first frame ${frame} ms, first articles ${articles} ms"
+done
+
+echo
+adb shell dumpsys activity $ACTIVITY | grep -E "cold start|warm start" || true